@@ -18,11 +18,11 @@ package com.tutorials.android.particles;
 
 import android.content.Context;
 import android.content.res.Resources;
-import android.graphics.Bitmap;
 import android.graphics.Rect;
 import android.view.ViewGroup;
 
 import com.tutorials.android.particles.particles.BitmapParticles;
+import com.tutorials.android.particles.particles.Sprite;
 
 import java.util.List;
 
@@ -34,6 +34,8 @@ public class CommonParticles {
     private static int explosionRadius;
 
     private ParticlesManager particlesManager;
+    // The system to emit from rather than from a view of its own, if any
+    private ParticleSystem particleSystem;
 
     private CommonParticles(ViewGroup container) {
         ensureStaticResources(container);
@@ -88,6 +90,25 @@ public class CommonParticles {
         return commonParticles;
     }
 
+    /**
+     * Like {@link #explosion(ViewGroup, int, int, int[])} but emitted from the provided particle
+     * system, so that any number of explosions share its single view.
+     *
+     * @param particleSystem the particle system to emit from.
+     * @param x the x coordinate of the explosion source.
+     * @param y the y coordinate of the explosion source.
+     * @param colors the set of colors to colorize the particles bitmaps.
+     * @return the created common particles object.
+     */
+    public static CommonParticles explosion(ParticleSystem particleSystem, int x, int y,
+                                            int[] colors) {
+        final ViewGroup container = particleSystem.getParentView();
+        final CommonParticles commonParticles = new CommonParticles(container);
+        commonParticles.particleSystem = particleSystem;
+        commonParticles.configureExplosion(container, x, y, colors);
+        return commonParticles;
+    }
+
     // endregion
 
     public ParticlesManager getParticlesManager() {
@@ -100,9 +121,8 @@ public class CommonParticles {
      * @return the resulting {@link ParticlesManager} that's performing the animation.
      */
     public ParticlesManager oneShot() {
-        return particlesManager.setNumInitialCount(100)
-                .setEmissionDuration(0)
-                .animate();
+        return start(particlesManager.setNumInitialCount(100)
+                .setEmissionDuration(0));
     }
 
     /**
@@ -112,10 +132,9 @@ public class CommonParticles {
      * @return the resulting {@link ParticlesManager} that's performing the animation.
      */
     public ParticlesManager stream(long durationInMillis) {
-        return particlesManager.setNumInitialCount(0)
+        return start(particlesManager.setNumInitialCount(0)
                 .setEmissionDuration(durationInMillis)
-                .setEmissionRate(50)
-                .animate();
+                .setEmissionRate(50));
     }
 
     /**
@@ -124,16 +143,23 @@ public class CommonParticles {
      * @return the resulting {@link ParticlesManager} that's performing the animation.
      */
     public ParticlesManager infinite() {
-        return particlesManager.setNumInitialCount(0)
+        return start(particlesManager.setNumInitialCount(0)
                 .setEmissionDuration(ParticlesManager.INFINITE_DURATION)
-                .setEmissionRate(50)
-                .animate();
+                .setEmissionRate(50));
+    }
+
+    private ParticlesManager start(ParticlesManager particlesManager) {
+        if (particleSystem != null) {
+            particleSystem.addEmitter(particlesManager);
+            return particlesManager;
+        }
+        return particlesManager.animate();
     }
 
     private ParticlesGenerator getDefaultGenerator(int[] colors) {
-        final List<Bitmap> bitmaps = Utils.generateParticlesBitmaps(colors, defaultParticlesSize);
-        final int numBitmaps = bitmaps.size();
-        return random -> new BitmapParticles(bitmaps.get(random.nextInt(numBitmaps)));
+        final List<Sprite> sprites = Utils.generateParticlesSprites(colors, defaultParticlesSize);
+        final int numSprites = sprites.size();
+        return random -> new BitmapParticles(sprites.get(random.nextInt(numSprites)));
     }
 
     private void configureRainingParticles(ViewGroup container, ParticlesSource particlesSource,
@@ -154,7 +180,7 @@ public class CommonParticles {
         final ParticlesGenerator generator = getDefaultGenerator(colors);
         final ParticlesSource particlesSource = new ParticlesSource(x, y);
 
-        particlesManager = new ParticlesManager(context, generator, particlesSource, container)
+        particlesManager = createParticlesManager(context, generator, particlesSource, container)
                 .setTTL(1000)
                 .setBound(new Rect(
                         x - explosionRadius, y - explosionRadius,
@@ -168,6 +194,13 @@ public class CommonParticles {
                 .setTargetRotationalVelocity(360);
     }
 
+    private ParticlesManager createParticlesManager(Context context, ParticlesGenerator generator,
+            ParticlesSource particlesSource, ViewGroup container) {
+        return particleSystem != null
+                ? particleSystem.createEmitter(generator, particlesSource)
+                : new ParticlesManager(context, generator, particlesSource, container);
+    }
+
     private static void ensureStaticResources(ViewGroup container) {
         if (defaultParticlesSize == 0) {
             final Resources res = container.getResources();
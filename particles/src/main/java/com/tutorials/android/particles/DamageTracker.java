@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2021 TutorialsAndroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tutorials.android.particles;
+
+import android.graphics.Rect;
+
+import com.tutorials.android.particles.particles.ParticlesFrame;
+
+/**
+ * Tracks the region that needs to be redrawn from one frame to the next: where the particles are
+ * drawn now, to show them, and where they were drawn last frame, to erase them. This must only be
+ * updated on one thread at a time.
+ */
+class DamageTracker {
+    private final Rect previous = new Rect();
+    private final Rect current = new Rect();
+    private boolean hasPrevious;
+    private volatile int damagedArea;
+
+    /**
+     * @param frame the frame that is about to be drawn.
+     * @param out receives the region to redraw.
+     * @return whether anything needs to be redrawn, if not out is left untouched.
+     */
+    boolean update(ParticlesFrame frame, Rect out) {
+        final boolean hasCurrent = frame.computeDrawBounds(current);
+        if (!hasCurrent && !hasPrevious) {
+            damagedArea = 0;
+            return false;
+        }
+
+        final Rect damage = hasCurrent ? current : previous;
+        out.set(damage.left, damage.top, damage.right, damage.bottom);
+        if (hasCurrent && hasPrevious) {
+            out.union(previous);
+        }
+        damagedArea = (out.right - out.left) * (out.bottom - out.top);
+
+        if (hasCurrent) {
+            previous.set(current.left, current.top, current.right, current.bottom);
+        }
+        hasPrevious = hasCurrent;
+        return true;
+    }
+
+    /**
+     * Forget the previous frame, e.g. because the next one starts a new animation.
+     */
+    void reset() {
+        hasPrevious = false;
+        damagedArea = 0;
+    }
+
+    /**
+     * @return the area in pixels of the last region to redraw.
+     */
+    int getDamagedArea() {
+        return damagedArea;
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ * Copyright (C) 2021 TutorialsAndroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tutorials.android.particles;
+
+import android.animation.ValueAnimator;
+import android.content.Context;
+import android.graphics.Rect;
+import android.os.Build;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+
+import com.tutorials.android.particles.particles.LodPolicy;
+import com.tutorials.android.particles.particles.ParticlesFrame;
+import com.tutorials.android.particles.particles.RotatedSpriteCache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hosts any number of emitters in a single {@link ParticlesView}, stepped and drawn together in
+ * one pass per frame. Each emitter is a {@link ParticlesManager} without a view, see
+ * {@link #createEmitter(ParticlesGenerator, ParticlesSource)}, with its own source, generator and
+ * physics. Emitters can be added and removed at any time: the view is borrowed from the
+ * {@link ParticlesViewPool} of the parent with the first one and returned to it once the last one
+ * has finished, so effects that are started often, e.g. an explosion per tap, keep a single
+ * overlay in the view hierarchy.
+ *
+ * <p>Emitters are always simulated on the main thread and their draw related settings are
+ * ignored, configure them on the system instead.
+ */
+public class ParticleSystem {
+    private final ViewGroup parentView;
+    // Borrowed from the pool of the parent while animating, unless one was provided
+    private ParticlesView particlesView;
+    private final boolean pooledView;
+    private final View.OnAttachStateChangeListener detachListener =
+            new View.OnAttachStateChangeListener() {
+                @Override
+                public void onViewAttachedToWindow(View v) {
+                }
+
+                @Override
+                public void onViewDetachedFromWindow(View v) {
+                    terminate();
+                }
+            };
+    private final List<Emitter> emitters = new ArrayList<>();
+    // The emitters being stepped this frame, so that they can be added and removed mid-pass
+    private Emitter[] stepping = new Emitter[0];
+    // The particles of every emitter, in the order the emitters were added
+    private final ParticlesFrame frame = new ParticlesFrame();
+    private final ParticlesTicker.Callback tickCallback = this::onTick;
+    // Only used before Jelly Bean, the shared ticker steps the system after
+    private ValueAnimator animator;
+    private boolean animating;
+    // The settings of the view, applied to every view borrowed from the pool
+    private boolean touchEnabled;
+    private boolean spriteBatchingEnabled = true;
+    private RotatedSpriteCache rotatedSpriteCache;
+    private LodPolicy lodPolicy;
+    private boolean cullingEnabled = true;
+    private boolean dirtyRegionInvalidationEnabled = true;
+
+    /**
+     * Creates a system that borrows a view from the {@link ParticlesViewPool} of the parent view
+     * while it animates.
+     */
+    public ParticleSystem(Context context, ViewGroup parentView) {
+        this.parentView = parentView;
+        this.pooledView = true;
+    }
+
+    public ParticleSystem(ViewGroup parentView, ParticlesView particlesView) {
+        this.parentView = parentView;
+        this.particlesView = particlesView;
+        this.pooledView = false;
+        bindParticlesView();
+    }
+
+    public ViewGroup getParentView() {
+        return parentView;
+    }
+
+    /**
+     * Creates an emitter bound to the parent view, to be configured and then added with
+     * {@link #addEmitter(ParticlesManager)}.
+     *
+     * @param particlesGenerator the generator of the emitter's particles.
+     * @param particlesSource where the emitter's particles are emitted from.
+     * @return the new emitter.
+     */
+    public ParticlesManager createEmitter(ParticlesGenerator particlesGenerator,
+                                          ParticlesSource particlesSource) {
+        return new ParticlesManager(particlesGenerator, particlesSource,
+                new Rect(0, 0, parentView.getWidth(), parentView.getHeight()));
+    }
+
+    /**
+     * Starts animating the provided emitter from the next frame. The emitter is removed once it
+     * has finished, i.e. once it no longer emits and every one of its particles has expired.
+     *
+     * @param emitter a manager without a view, e.g. from
+     *   {@link #createEmitter(ParticlesGenerator, ParticlesSource)}.
+     * @return the particle system so that the calls can be chained.
+     */
+    public ParticleSystem addEmitter(ParticlesManager emitter) {
+        if (indexOf(emitter) >= 0) {
+            return this;
+        }
+        emitters.add(new Emitter(emitter));
+        if (!animating) {
+            start();
+        }
+        return this;
+    }
+
+    /**
+     * Stops the provided emitter and removes its particles right away.
+     *
+     * @param emitter the emitter to remove.
+     * @return the particle system so that the calls can be chained.
+     */
+    public ParticleSystem removeEmitter(ParticlesManager emitter) {
+        final int index = indexOf(emitter);
+        if (index >= 0) {
+            emitters.remove(index);
+            emitter.terminate();
+        }
+        return this;
+    }
+
+    /**
+     * @return the number of emitters currently animating.
+     */
+    public int getEmitterCount() {
+        return emitters.size();
+    }
+
+    /**
+     * @return the number of particles currently animated across every emitter.
+     */
+    public int getParticlesCount() {
+        int count = 0;
+        for (int i = 0, size = emitters.size(); i < size; i++) {
+            count += emitters.get(i).manager.getParticlesCount();
+        }
+        return count;
+    }
+
+    /**
+     * @see ParticlesManager#setTouchEnabled(boolean)
+     *
+     * @param touchEnabled whether or not to enable touch.
+     * @return the particle system so that the set calls can be chained.
+     */
+    public ParticleSystem setTouchEnabled(boolean touchEnabled) {
+        this.touchEnabled = touchEnabled;
+        if (particlesView != null) {
+            particlesView.setTouchEnabled(touchEnabled);
+        }
+        return this;
+    }
+
+    /**
+     * @see ParticlesManager#setSpriteBatchingEnabled(boolean)
+     *
+     * @param spriteBatchingEnabled whether or not to batch the bitmap particles draw calls.
+     * @return the particle system so that the set calls can be chained.
+     */
+    public ParticleSystem setSpriteBatchingEnabled(boolean spriteBatchingEnabled) {
+        this.spriteBatchingEnabled = spriteBatchingEnabled;
+        if (particlesView != null) {
+            particlesView.setSpriteBatchingEnabled(spriteBatchingEnabled);
+        }
+        return this;
+    }
+
+    /**
+     * @see ParticlesManager#setRotatedSpriteCache(RotatedSpriteCache)
+     *
+     * @param rotatedSpriteCache the cache to draw from, or null to disable it.
+     * @return the particle system so that the set calls can be chained.
+     */
+    public ParticleSystem setRotatedSpriteCache(RotatedSpriteCache rotatedSpriteCache) {
+        this.rotatedSpriteCache = rotatedSpriteCache;
+        if (particlesView != null) {
+            particlesView.setRotatedSpriteCache(rotatedSpriteCache);
+        }
+        return this;
+    }
+
+    /**
+     * @see ParticlesManager#setLodPolicy(LodPolicy)
+     *
+     * @param lodPolicy the policy for every emitter, or null to always draw every particles in
+     *   full.
+     * @return the particle system so that the set calls can be chained.
+     */
+    public ParticleSystem setLodPolicy(LodPolicy lodPolicy) {
+        this.lodPolicy = lodPolicy;
+        if (particlesView != null) {
+            particlesView.setLodPolicy(lodPolicy);
+        }
+        return this;
+    }
+
+    /**
+     * @see ParticlesManager#setCullingEnabled(boolean)
+     *
+     * @param cullingEnabled whether or not to skip the particles outside of the canvas clip.
+     * @return the particle system so that the set calls can be chained.
+     */
+    public ParticleSystem setCullingEnabled(boolean cullingEnabled) {
+        this.cullingEnabled = cullingEnabled;
+        if (particlesView != null) {
+            particlesView.setCullingEnabled(cullingEnabled);
+        }
+        return this;
+    }
+
+    /**
+     * @see ParticlesManager#setDirtyRegionInvalidationEnabled(boolean)
+     *
+     * @param dirtyRegionInvalidationEnabled whether or not to only redraw the region that changed.
+     * @return the particle system so that the set calls can be chained.
+     */
+    public ParticleSystem setDirtyRegionInvalidationEnabled(
+            boolean dirtyRegionInvalidationEnabled) {
+        this.dirtyRegionInvalidationEnabled = dirtyRegionInvalidationEnabled;
+        if (particlesView != null) {
+            particlesView.setDirtyRegionInvalidationEnabled(dirtyRegionInvalidationEnabled);
+        }
+        return this;
+    }
+
+    /**
+     * Terminate every emitter and return the view to the pool, or remove it from the parent if it
+     * was provided.
+     */
+    public void terminate() {
+        while (!emitters.isEmpty()) {
+            emitters.remove(emitters.size() - 1).manager.terminate();
+        }
+        if (animating) {
+            stop();
+        }
+    }
+
+    private void start() {
+        animating = true;
+        if (pooledView && particlesView == null) {
+            particlesView = ParticlesViewPool.of(parentView).obtain();
+            bindParticlesView();
+        }
+        attachParticlesViewToParent();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            ParticlesTicker.getInstance().register(this, tickCallback);
+            return;
+        }
+
+        // Never-ending animator, we will cancel once the last emitter has finished.
+        animator = ValueAnimator.ofInt(0)
+                .setDuration(Long.MAX_VALUE);
+        animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator valueAnimator) {
+                onTick(valueAnimator.getCurrentPlayTime() * 1000000L);
+            }
+        });
+        animator.start();
+    }
+
+    private void stop() {
+        animating = false;
+        if (animator != null) {
+            animator.cancel();
+            animator = null;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            ParticlesTicker.getInstance().unregister(tickCallback);
+        }
+        frame.clear();
+        if (pooledView) {
+            particlesView.removeOnAttachStateChangeListener(detachListener);
+            ParticlesViewPool.of(parentView).release(particlesView);
+            particlesView = null;
+        } else {
+            particlesView.terminate();
+        }
+    }
+
+    private void bindParticlesView() {
+        particlesView.bind(() -> frame);
+        particlesView.setTouchHandler(this::onTouchEvent);
+        particlesView.setTouchEnabled(touchEnabled);
+        particlesView.setSpriteBatchingEnabled(spriteBatchingEnabled);
+        particlesView.setRotatedSpriteCache(rotatedSpriteCache);
+        particlesView.setLodPolicy(lodPolicy);
+        particlesView.setCullingEnabled(cullingEnabled);
+        particlesView.setDirtyRegionInvalidationEnabled(dirtyRegionInvalidationEnabled);
+        particlesView.addOnAttachStateChangeListener(detachListener);
+    }
+
+    private void attachParticlesViewToParent() {
+        final ViewParent currentParent = particlesView.getParent();
+        if (currentParent != null) {
+            if (currentParent != parentView) {
+                ((ViewGroup) currentParent).removeView(particlesView);
+                parentView.addView(particlesView);
+            }
+        } else {
+            parentView.addView(particlesView);
+        }
+
+        particlesView.reset();
+    }
+
+    // Steps every emitter to the frame time and gathers their particles into the drawn frame.
+    private void onTick(long frameTimeNanos) {
+        final int count = emitters.size();
+        if (stepping.length < count) {
+            stepping = new Emitter[count];
+        }
+        emitters.toArray(stepping);
+        for (int i = 0; i < count; i++) {
+            final Emitter emitter = stepping[i];
+            stepping[i] = null;
+            // Skip the emitters that an earlier one removed during this pass.
+            if (!emitters.contains(emitter)) {
+                continue;
+            }
+            if (emitter.startTimeNanos < 0) {
+                emitter.startTimeNanos = frameTimeNanos;
+            }
+            if (!emitter.manager.step((frameTimeNanos - emitter.startTimeNanos) / 1000000L)) {
+                emitters.remove(emitter);
+                emitter.manager.terminate();
+            }
+        }
+
+        if (emitters.isEmpty()) {
+            stop();
+            return;
+        }
+        frame.clear();
+        for (int i = 0, size = emitters.size(); i < size; i++) {
+            frame.append(emitters.get(i).manager.getFrame());
+        }
+        particlesView.invalidateFrame(frame);
+    }
+
+    // Forwards the touch events to the emitters, the most recently added ones first since they
+    // are drawn on top.
+    private boolean onTouchEvent(MotionEvent event) {
+        boolean handled = false;
+        for (int i = emitters.size() - 1; i >= 0 && !handled; i--) {
+            handled = emitters.get(i).manager.getTouchController().onTouchEvent(event);
+        }
+        return handled;
+    }
+
+    private int indexOf(ParticlesManager manager) {
+        for (int i = 0, size = emitters.size(); i < size; i++) {
+            if (emitters.get(i).manager == manager) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static class Emitter {
+        final ParticlesManager manager;
+        // The time of the emitter's first frame, -1 until it has one
+        long startTimeNanos = -1;
+
+        Emitter(ParticlesManager manager) {
+            this.manager = manager;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2021 TutorialsAndroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tutorials.android.particles;
+
+import android.animation.ValueAnimator;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Animatable;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.view.View;
+
+import com.tutorials.android.particles.particles.LodPolicy;
+import com.tutorials.android.particles.particles.ParticlesFrame;
+import com.tutorials.android.particles.particles.SpriteBatcher;
+
+/**
+ * Renders a particles animation as a {@link Drawable}, e.g. as the background or foreground of
+ * any view or inside the items of a list, without adding a view to the hierarchy. The animation
+ * is run by a {@link ParticlesManager} without a view, see {@link #getParticlesManager()}, whose
+ * bound follows the bounds of this drawable: every coordinate of the manager, including its
+ * source, is relative to the top left corner of the drawable.
+ *
+ * <p>The animation only advances while the drawable is visible and has a non-empty size, and
+ * picks up where it left off when it is shown again. Views report the visibility of their
+ * background and foreground from Nougat (API 24), call {@link #setVisible(boolean, boolean)}
+ * yourself on older versions, e.g. when a list item is recycled. The animation also pauses while
+ * the drawable has no callback or its view is detached from the window, so that the shared ticker
+ * never keeps a drawable or its view alive, and resumes on the next draw. The drawable steps on the
+ * main thread and ignores color filters.
+ */
+public class ParticlesDrawable extends Drawable implements Animatable {
+    private final ParticlesManager particlesManager;
+    // The bounds of this drawable, translated to the origin
+    private final Rect bound = new Rect();
+    private final SpriteBatcher spriteBatcher = new SpriteBatcher();
+    private final ParticlesTicker.Callback tickCallback = this::onTick;
+    // Only used before Jelly Bean, the shared ticker steps the drawable after
+    private ValueAnimator animator;
+    private int alpha = 255;
+
+    // Whether the animation is started, even if it is paused
+    private boolean started;
+    // Whether the manager was stepped since the animation started, and so has particles to draw
+    private boolean stepped;
+    private boolean ticking;
+    private long lastFrameTimeNanos = -1;
+    // The time that the animation has been running for, excluding the pauses
+    private long elapsedTimeNanos;
+
+    /**
+     * @param particlesGenerator the generator of the particles.
+     * @param particlesSource where the particles are emitted from, relative to the drawable.
+     */
+    public ParticlesDrawable(ParticlesGenerator particlesGenerator,
+                             ParticlesSource particlesSource) {
+        this.particlesManager = new ParticlesManager(particlesGenerator, particlesSource, bound);
+        this.particlesManager.lockBound();
+    }
+
+    /**
+     * @return the manager to configure the animation with. Its draw related settings are ignored
+     *   except for {@link ParticlesManager#setLodPolicy(LodPolicy)} and
+     *   {@link ParticlesManager#setCullingEnabled(boolean)}, it must not be animated or stepped
+     *   directly and its bound can not be set.
+     */
+    public ParticlesManager getParticlesManager() {
+        return particlesManager;
+    }
+
+    /**
+     * Start the animation from the beginning, unless it is already running.
+     */
+    @Override
+    public void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        elapsedTimeNanos = 0;
+        updateTicking();
+    }
+
+    /**
+     * Terminate the animation and clear the particles.
+     */
+    @Override
+    public void stop() {
+        if (!started) {
+            return;
+        }
+        started = false;
+        updateTicking();
+        finish();
+    }
+
+    /**
+     * @return whether the animation is started, including while it is paused because the
+     *   drawable is not visible.
+     */
+    @Override
+    public boolean isRunning() {
+        return started;
+    }
+
+    @Override
+    public boolean setVisible(boolean visible, boolean restart) {
+        final boolean changed = super.setVisible(visible, restart);
+        if (visible && restart && started) {
+            finish();
+            elapsedTimeNanos = 0;
+        }
+        updateTicking();
+        return changed;
+    }
+
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        super.onBoundsChange(bounds);
+        bound.set(0, 0, bounds.width(), bounds.height());
+        updateTicking();
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        // Being drawn means that the host is attached again, if it paused the animation.
+        updateTicking();
+        final ParticlesFrame frame = particlesManager.getFrame();
+        // The particles of a stopped animation are only cleared when it starts again.
+        if (!stepped || frame.size() == 0) {
+            return;
+        }
+
+        final Rect bounds = getBounds();
+        if (alpha < 255) {
+            saveLayerAlpha(canvas, bounds);
+        } else {
+            canvas.save();
+        }
+        canvas.translate(bounds.left, bounds.top);
+        final LodPolicy lodPolicy = particlesManager.getLodPolicy();
+        if (lodPolicy != null) {
+            lodPolicy.beginFrame(1f);
+        }
+        frame.setLodPolicy(lodPolicy);
+        frame.setCullingEnabled(particlesManager.isCullingEnabled());
+        if (SpriteBatcher.isSupported(canvas)) {
+            spriteBatcher.draw(canvas, frame);
+        } else {
+            frame.draw(canvas);
+        }
+        canvas.restore();
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        if (this.alpha != alpha) {
+            this.alpha = alpha;
+            invalidateSelf();
+        }
+    }
+
+    @Override
+    public void setColorFilter(ColorFilter colorFilter) {
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+
+    @SuppressWarnings("deprecation")
+    private void saveLayerAlpha(Canvas canvas, Rect bounds) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            canvas.saveLayerAlpha(bounds.left, bounds.top, bounds.right, bounds.bottom, alpha);
+        } else {
+            // The only overload before Lollipop, the flag is what the newer one implies.
+            canvas.saveLayerAlpha(bounds.left, bounds.top, bounds.right, bounds.bottom, alpha,
+                    Canvas.ALL_SAVE_FLAG);
+        }
+    }
+
+    // Whether something can draw this drawable, a view is only checked from KitKat.
+    private boolean isHostAttached() {
+        final Callback callback = getCallback();
+        if (callback instanceof View
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return ((View) callback).isAttachedToWindow();
+        }
+        return callback != null;
+    }
+
+    // Ticks while the animation is started and can be seen, and pauses otherwise.
+    private void updateTicking() {
+        final boolean shouldTick = started && isVisible() && !bound.isEmpty()
+                && isHostAttached();
+        if (shouldTick == ticking) {
+            return;
+        }
+        ticking = shouldTick;
+        lastFrameTimeNanos = -1;
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            if (shouldTick) {
+                ParticlesTicker.getInstance().register(this, tickCallback);
+            } else {
+                ParticlesTicker.getInstance().unregister(tickCallback);
+            }
+        } else if (shouldTick) {
+            // Never-ending animator, we will cancel once paused or finished.
+            animator = ValueAnimator.ofInt(0)
+                    .setDuration(Long.MAX_VALUE);
+            animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+                @Override
+                public void onAnimationUpdate(ValueAnimator valueAnimator) {
+                    onTick(valueAnimator.getCurrentPlayTime() * 1000000L);
+                }
+            });
+            animator.start();
+        } else if (animator != null) {
+            animator.cancel();
+            animator = null;
+        }
+    }
+
+    private void onTick(long frameTimeNanos) {
+        if (!isHostAttached()) {
+            updateTicking();
+            return;
+        }
+        // Only the time between two frames counts, so that a pause does not skip ahead.
+        if (lastFrameTimeNanos >= 0) {
+            elapsedTimeNanos += frameTimeNanos - lastFrameTimeNanos;
+        }
+        lastFrameTimeNanos = frameTimeNanos;
+
+        stepped = true;
+        if (!particlesManager.step(elapsedTimeNanos / 1000000L)) {
+            started = false;
+            updateTicking();
+            finish();
+        }
+        invalidateSelf();
+    }
+
+    private void finish() {
+        if (stepped) {
+            stepped = false;
+            particlesManager.terminate();
+        }
+        invalidateSelf();
+    }
+}
@@ -24,7 +24,9 @@ public interface ParticlesGenerator {
     /**
      * Generate a random particles to animate.
      *
-     * @param random a {@link Random} that can be used to generate random particles.
+     * @param random a {@link Random} that can be used to generate random particles. When called by
+     *   a {@link ParticlesManager} this is its {@link RandomSource}, which must not be used from
+     *   another thread.
      * @return the randomly generated particles.
      */
     Particles generateParticles(Random random);
@@ -19,18 +19,20 @@ package com.tutorials.android.particles;
 import android.animation.ValueAnimator;
 import android.content.Context;
 import android.graphics.Rect;
+import android.os.Build;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewParent;
 import android.view.animation.Interpolator;
 
+import com.tutorials.android.particles.particles.FrameClock;
+import com.tutorials.android.particles.particles.LodPolicy;
+import com.tutorials.android.particles.particles.ParallelStepper;
+import com.tutorials.android.particles.particles.ParticleStore;
 import com.tutorials.android.particles.particles.Particles;
+import com.tutorials.android.particles.particles.ParticlesFrame;
+import com.tutorials.android.particles.particles.RotatedSpriteCache;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Queue;
 import java.util.Random;
 
 /**
@@ -39,16 +41,54 @@ import java.util.Random;
 public class ParticlesManager {
     public static final long INFINITE_DURATION = Long.MAX_VALUE;
 
-    private final Random random = new Random();
+    // The most random floats that the default configureParticles draws for a single particles
+    private static final int RANDOM_FLOATS_PER_PARTICLES = 12;
+
+    private RandomSource random = new RandomSource();
     private final ParticlesGenerator particlesGenerator;
     private final ParticlesSource particlesSource;
     private final ViewGroup parentView;
-    private final ParticlesView particlesView;
+    // Borrowed from the pool of the parent while animating, unless one was provided
+    private ParticlesView particlesView;
+    private final boolean pooledView;
+    private final View.OnAttachStateChangeListener detachListener =
+            new View.OnAttachStateChangeListener() {
+                @Override
+                public void onViewAttachedToWindow(View v) {
+                }
 
-    private final Queue<Particles> recycledParticles = new LinkedList<>();
-    private final List<Particles> particles = new ArrayList<>(300);
+                @Override
+                public void onViewDetachedFromWindow(View v) {
+                    terminate();
+                }
+            };
+
+    private final ParticlesPool recycledParticles = new ParticlesPool();
+    private final ParticleStore particles = new ParticleStore(300);
+    private final ParticleStore.OnRemoveListener onRemoveListener = this::onParticlesRemoved;
+    private final TouchController touchController = new TouchController(particles);
+    private final ParticlesTicker.Callback tickCallback = this::onTick;
+    private ParallelStepper parallelStepper;
+    private boolean simulateOffMainThread;
+    private SimulationThread simulationThread;
+    // Only used before Jelly Bean, the shared ticker steps the main thread animations after
     private ValueAnimator animator;
+    private long tickStartTimeNanos;
+    private FrameClock frameClock;
+    private long clockStartMillis = -1;
+    // Whether the animation was started by step(long)
+    private boolean stepping;
     private long lastEmittedTimestamp;
+    private QualityGovernor qualityGovernor;
+    private LodPolicy lodPolicy;
+    // The settings of the view, applied to every view borrowed from the pool
+    private boolean touchEnabled;
+    private boolean spriteBatchingEnabled = true;
+    private RotatedSpriteCache rotatedSpriteCache;
+    private boolean dirtyRegionInvalidationEnabled = true;
+    private boolean cullingEnabled = true;
+    // The most particles to keep alive while the governor caps the live count, -1 if not capped
+    private int liveCountCap = -1;
 
     // All of the below configured values are in milliseconds despite the setter methods take them
     // in seconds as the parameters. The parameters for the setters are in seconds to allow for
@@ -60,6 +100,8 @@ public class ParticlesManager {
     private float emissionRate, emissionRateInverse;
     private Interpolator fadeOutInterpolator;
     private Rect bound;
+    // Whether the bound is owned by a ParticlesDrawable, which keeps it in sync with its bounds
+    private boolean boundLocked;
 
     // Configured attributes for each confetto
     private float velocityX, velocityDeviationX;
@@ -76,9 +118,20 @@ public class ParticlesManager {
 
     private ParticlesAnimationListener animationListener;
 
+    /**
+     * Creates a manager that borrows a view from the {@link ParticlesViewPool} of the parent view
+     * whenever it animates, and returns it once the animation finishes.
+     */
     public ParticlesManager(Context context, ParticlesGenerator particlesGenerator,
                             ParticlesSource particlesSource, ViewGroup parentView) {
-        this(particlesGenerator, particlesSource, parentView, ParticlesView.newInstance(context));
+        this.particlesGenerator = particlesGenerator;
+        this.particlesSource = particlesSource;
+        this.parentView = parentView;
+        this.pooledView = true;
+
+        // Set the defaults
+        this.ttl = -1;
+        this.bound = new Rect(0, 0, parentView.getWidth(), parentView.getHeight());
     }
 
     public ParticlesManager(ParticlesGenerator particlesGenerator,
@@ -87,22 +140,33 @@ public class ParticlesManager {
         this.particlesSource = particlesSource;
         this.parentView = parentView;
         this.particlesView = particlesView;
+        this.pooledView = false;
         this.particlesView.bind(particles);
+        this.particlesView.setTouchHandler(touchController);
+        this.particlesView.addOnAttachStateChangeListener(detachListener);
 
-        this.particlesView.addOnAttachStateChangeListener(new View.OnAttachStateChangeListener() {
-            @Override
-            public void onViewAttachedToWindow(View v) {
-            }
+        // Set the defaults
+        this.ttl = -1;
+        this.bound = new Rect(0, 0, parentView.getWidth(), parentView.getHeight());
+    }
 
-            @Override
-            public void onViewDetachedFromWindow(View v) {
-                terminate();
-            }
-        });
+    /**
+     * Creates a manager without a view that can only be driven by {@link #step(long)}, e.g. to
+     * run deterministic simulations in JVM tests or benchmarks, or by a {@link ParticleSystem}
+     * as one of its emitters. Every draw related setting is ignored.
+     *
+     * @param bound the bound of the particles, see {@link #setBound(Rect)}.
+     */
+    public ParticlesManager(ParticlesGenerator particlesGenerator,
+                            ParticlesSource particlesSource, Rect bound) {
+        this.particlesGenerator = particlesGenerator;
+        this.particlesSource = particlesSource;
+        this.parentView = null;
+        this.pooledView = false;
 
         // Set the defaults
         this.ttl = -1;
-        this.bound = new Rect(0, 0, parentView.getWidth(), parentView.getHeight());
+        this.bound = bound;
     }
 
     /**
@@ -406,12 +470,26 @@ public class ParticlesManager {
      *
      * @param bound the bound that clips the particles as they animate.
      * @return the particles manager so that the set calls can be chained.
+     * @throws IllegalStateException if this manager is run by a {@link ParticlesDrawable}, whose
+     *   bounds are the bound.
      */
     public ParticlesManager setBound(Rect bound) {
+        if (boundLocked) {
+            throw new IllegalStateException("The bound of a drawable's manager follows the "
+                    + "drawable's bounds");
+        }
         this.bound = bound;
         return this;
     }
 
+    /**
+     * Prevent any later {@link #setBound(Rect)}, the current bound instance is updated in place by
+     * its owner instead.
+     */
+    void lockBound() {
+        this.boundLocked = true;
+    }
+
     /**
      * Specifies a custom time to live for the particles generated by this manager. When a particles
      * reaches its time to live timer, it will disappear and terminate its animation.
@@ -459,7 +537,216 @@ public class ParticlesManager {
      * @return the particles manager so that the set calls can be chained.
      */
     public ParticlesManager setTouchEnabled(boolean touchEnabled) {
-        this.particlesView.setTouchEnabled(touchEnabled);
+        this.touchEnabled = touchEnabled;
+        if (particlesView != null) {
+            this.particlesView.setTouchEnabled(touchEnabled);
+        }
+        return this;
+    }
+
+    /**
+     * Enables or disables batching the draw calls of bitmap particles. When enabled (the default),
+     * particles sharing a bitmap are drawn as a single textured mesh rather than one bitmap each,
+     * on the canvases that support it. Particles that are not simple bitmaps, e.g.
+     * {@link com.tutorials.android.particles.particles.ShimmeringParticles}, are unaffected.
+     *
+     * @param spriteBatchingEnabled whether or not to batch the bitmap particles draw calls.
+     * @return the particles manager so that the set calls can be chained.
+     */
+    public ParticlesManager setSpriteBatchingEnabled(boolean spriteBatchingEnabled) {
+        this.spriteBatchingEnabled = spriteBatchingEnabled;
+        if (particlesView != null) {
+            this.particlesView.setSpriteBatchingEnabled(spriteBatchingEnabled);
+        }
+        return this;
+    }
+
+    /**
+     * Draws the bitmap particles from a cache of pre-rotated sprites whenever their draw calls
+     * cannot be batched, see {@link #setSpriteBatchingEnabled(boolean)}. Each rotation is rounded
+     * to one of the angles of the cache, so the particles no longer need to be transformed when
+     * drawn. Disabled by default.
+     *
+     * @param rotatedSpriteCache the cache to draw from, which can be shared across managers, or
+     *   null to disable it.
+     * @return the particles manager so that the set calls can be chained.
+     */
+    public ParticlesManager setRotatedSpriteCache(RotatedSpriteCache rotatedSpriteCache) {
+        this.rotatedSpriteCache = rotatedSpriteCache;
+        if (particlesView != null) {
+            this.particlesView.setRotatedSpriteCache(rotatedSpriteCache);
+        }
+        return this;
+    }
+
+    /**
+     * Replaces the time of the display frames with the time of the provided clock to drive the
+     * animation, e.g. to slow it down or to replay it deterministically. The elapsed time is
+     * measured from the first frame. This should not be changed while the animation is running.
+     *
+     * @param frameClock the clock to read the time from, or null to follow the display frames.
+     * @return the particles manager so that the set calls can be chained.
+     */
+    public ParticlesManager setFrameClock(FrameClock frameClock) {
+        this.frameClock = frameClock;
+        return this;
+    }
+
+    /**
+     * Holds this manager to the frame-time budget of the provided governor: while updating and
+     * drawing the particles takes too long, the particles emitted from then on are progressively
+     * fewer and simpler, see {@link QualityGovernor.Level}. Share a governor across the managers
+     * that animate at the same time to hold them to a common budget. Disabled by default.
+     *
+     * @param qualityGovernor the governor to report to, or null to always emit at full quality.
+     * @return the particles manager so that the set calls can be chained.
+     */
+    public ParticlesManager setQualityGovernor(QualityGovernor qualityGovernor) {
+        this.qualityGovernor = qualityGovernor;
+        return this;
+    }
+
+    public QualityGovernor getQualityGovernor() {
+        return qualityGovernor;
+    }
+
+    /**
+     * Draws the particles of this manager with less detail where it would hardly show: particles
+     * that have almost faded out are skipped, and particles that are only a couple of pixels wide
+     * on screen are drawn as batched points. The policy holds the thresholds and counts how many
+     * particles were drawn at each level of detail, see {@link LodPolicy}. Disabled by default.
+     *
+     * @param lodPolicy the policy for this manager, or null to always draw every particles in
+     *   full.
+     * @return the particles manager so that the set calls can be chained.
+     */
+    public ParticlesManager setLodPolicy(LodPolicy lodPolicy) {
+        this.lodPolicy = lodPolicy;
+        if (particlesView != null) {
+            this.particlesView.setLodPolicy(lodPolicy);
+        }
+        return this;
+    }
+
+    public LodPolicy getLodPolicy() {
+        return lodPolicy;
+    }
+
+    /**
+     * Enables or disables skipping the particles that draw nothing within the clip of the canvas,
+     * before any canvas call is made for them. Enabled by default. Like
+     * {@link #setDirtyRegionInvalidationEnabled(boolean)}, this assumes that every particles draws
+     * within its width and height, so disable it for custom particles that do not.
+     *
+     * @param cullingEnabled whether or not to skip the particles outside of the canvas clip.
+     * @return the particles manager so that the set calls can be chained.
+     */
+    public ParticlesManager setCullingEnabled(boolean cullingEnabled) {
+        this.cullingEnabled = cullingEnabled;
+        if (particlesView != null) {
+            this.particlesView.setCullingEnabled(cullingEnabled);
+        }
+        return this;
+    }
+
+    public boolean isCullingEnabled() {
+        return cullingEnabled;
+    }
+
+    /**
+     * Enables or disables redrawing only the region that changed with each frame: the union of
+     * where the particles are drawn and where they were drawn on the previous frame. When enabled
+     * (the default), small effects no longer redraw the whole overlay. This assumes that every
+     * particles draws within its width and height, so disable it for custom particles that do
+     * not. Note that from Lollipop, hardware accelerated windows may redraw a larger region.
+     *
+     * @param dirtyRegionInvalidationEnabled whether or not to only redraw the region that changed.
+     * @return the particles manager so that the set calls can be chained.
+     */
+    public ParticlesManager setDirtyRegionInvalidationEnabled(
+            boolean dirtyRegionInvalidationEnabled) {
+        this.dirtyRegionInvalidationEnabled = dirtyRegionInvalidationEnabled;
+        if (particlesView != null) {
+            this.particlesView.setDirtyRegionInvalidationEnabled(dirtyRegionInvalidationEnabled);
+        }
+        return this;
+    }
+
+    /**
+     * @return the area in pixels of the region that changed with the last frame, whether or not
+     *   only that region was redrawn. 0 if nothing changed.
+     */
+    public int getDamagedArea() {
+        return particlesView == null ? 0 : particlesView.getDamagedArea();
+    }
+
+    /**
+     * Configures whether the particles generated by this manager keep their relative draw order
+     * when other particles finish animating. By default a finished particles is replaced by the
+     * most recently added one, which keeps the per-frame cost linear in the number of live
+     * particles. Enable this for effects where overlapping particles must always be drawn in the
+     * order they were emitted.
+     *
+     * @param stableDrawOrder whether or not to preserve the draw order.
+     * @return the particles manager so that the set calls can be chained.
+     */
+    public ParticlesManager setStableDrawOrder(boolean stableDrawOrder) {
+        this.particles.setStableOrder(stableDrawOrder);
+        return this;
+    }
+
+    /**
+     * @see #enableParallelStepping(int)
+     *
+     * @return the particles manager so that the set calls can be chained.
+     */
+    public ParticlesManager enableParallelStepping() {
+        return enableParallelStepping(ParallelStepper.DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Enables multi-core stepping of the particles physics. Once at least {@code threshold}
+     * particles are alive, each frame's update is split into chunks that run on a shared worker
+     * pool, and all of them are joined before the frame is drawn. Below the threshold the update
+     * stays on the main thread. The result is identical either way, so this is purely a
+     * performance trade-off for effects with tens of thousands of particles.
+     *
+     * @param threshold the number of live particles at which to start stepping in parallel.
+     * @return the particles manager so that the set calls can be chained.
+     */
+    public ParticlesManager enableParallelStepping(int threshold) {
+        if (parallelStepper == null) {
+            parallelStepper = new ParallelStepper();
+        }
+        parallelStepper.setThreshold(threshold);
+        return this;
+    }
+
+    /**
+     * Disables multi-core stepping of the particles physics.
+     *
+     * @return the particles manager so that the set calls can be chained.
+     */
+    public ParticlesManager disableParallelStepping() {
+        this.parallelStepper = null;
+        return this;
+    }
+
+    /**
+     * Moves the simulation of this manager's particles off of the main thread. Each frame is
+     * stepped on a dedicated thread and handed over to the {@link ParticlesView} through a
+     * lock-free triple buffer, so drawing never waits on the simulation and the simulation never
+     * blocks the main thread. Touch events are forwarded to the simulation thread.
+     *
+     * <p>While enabled, the {@link ParticlesAnimationListener#onParticlesEnter(Particles)} and
+     * {@link ParticlesAnimationListener#onParticlesExit(Particles)} callbacks are invoked on the
+     * simulation thread. This has no effect before Jelly Bean (API 16).
+     *
+     * @param simulateOffMainThread whether or not to simulate on a dedicated thread.
+     * @return the particles manager so that the set calls can be chained.
+     */
+    public ParticlesManager setSimulateOffMainThread(boolean simulateOffMainThread) {
+        this.simulateOffMainThread = simulateOffMainThread;
         return this;
     }
 
@@ -474,20 +761,112 @@ public class ParticlesManager {
         return this;
     }
 
+    /**
+     * Replaces the source of randomness used to generate, configure and emit particles. This
+     * should not be changed while the animation is running.
+     *
+     * @param randomSource the new source of randomness.
+     * @return the particles manager so that the set calls can be chained.
+     */
+    public ParticlesManager setRandomSource(RandomSource randomSource) {
+        this.random = randomSource;
+        return this;
+    }
+
+    public RandomSource getRandomSource() {
+        return random;
+    }
+
+    /**
+     * Seeds the source of randomness so that the same configuration always produces the same
+     * effect, e.g. in tests or to replay an animation.
+     *
+     * @param seed the seed to use.
+     * @return the particles manager so that the set calls can be chained.
+     */
+    public ParticlesManager setSeed(long seed) {
+        random.setSeed(seed);
+        return this;
+    }
+
+    /**
+     * Generate particles up front so that they can be recycled once the animation starts, e.g.
+     * during app startup, rather than allocating them on the first frames of the animation.
+     *
+     * @param numParticles the number of particles that should be ready for use.
+     * @return the particles manager so that the set calls can be chained.
+     */
+    public ParticlesManager prewarm(int numParticles) {
+        recycledParticles.prewarm(particlesGenerator, random, numParticles);
+        return this;
+    }
+
+    /**
+     * Caps the number of finished particles that this manager keeps around for re-use. By default
+     * every finished particles is kept, so a long-running animation retains as many particles as
+     * it ever had alive at once.
+     *
+     * @param maxPoolSize the maximum number of recycled particles to retain, or
+     *   {@link ParticlesPool#UNBOUNDED}.
+     * @return the particles manager so that the set calls can be chained.
+     */
+    public ParticlesManager setMaxPoolSize(int maxPoolSize) {
+        recycledParticles.setMaxSize(maxPoolSize);
+        return this;
+    }
+
+    /**
+     * @see ParticlesPool.EvictionPolicy
+     *
+     * @param evictionPolicy which particles to drop once the pool reaches its max size.
+     * @return the particles manager so that the set calls can be chained.
+     */
+    public ParticlesManager setPoolEvictionPolicy(ParticlesPool.EvictionPolicy evictionPolicy) {
+        recycledParticles.setEvictionPolicy(evictionPolicy);
+        return this;
+    }
+
+    /**
+     * Release recycled particles until at most {@code size} remain.
+     *
+     * @param size the number of recycled particles to keep.
+     */
+    public void trimPool(int size) {
+        recycledParticles.trimToSize(size);
+    }
+
+    /**
+     * @return the pool of recycled particles, e.g. to inspect its hit and miss counters.
+     */
+    public ParticlesPool getPool() {
+        return recycledParticles;
+    }
+
     /**
      * Start the particles animation configured by this manager.
      *
      * @return the particles manager itself that just started animating.
      */
     public ParticlesManager animate() {
+        if (parentView == null) {
+            throw new IllegalStateException("A manager without a view can only be stepped");
+        }
         if (animationListener != null) {
             animationListener.onAnimationStart(this);
         }
 
         cleanupExistingAnimation();
+        if (pooledView && particlesView == null) {
+            borrowParticlesView();
+        }
         attachParticlesViewToParent();
         addNewParticles(numInitialCount, 0);
-        startNewAnimation();
+        if (simulateOffMainThread
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            startSimulationThread();
+        } else {
+            startNewAnimation();
+        }
         return this;
     }
 
@@ -495,29 +874,65 @@ public class ParticlesManager {
      * Terminate the currently running animation if there is any.
      */
     public void terminate() {
-        if (animator != null) {
-            animator.cancel();
+        stopAnimation();
+        if (pooledView && particlesView != null) {
+            returnParticlesView();
+        } else if (particlesView != null) {
+            particlesView.terminate();
         }
-        particlesView.terminate();
 
         if (animationListener != null) {
             animationListener.onAnimationEnd(this);
         }
     }
 
-    private void cleanupExistingAnimation() {
+    private void stopAnimation() {
+        stepping = false;
         if (animator != null) {
             animator.cancel();
         }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            ParticlesTicker.getInstance().unregister(tickCallback);
+        }
+        if (simulationThread != null) {
+            simulationThread.stop();
+            simulationThread = null;
+            particlesView.bind(particles);
+            particlesView.setTouchHandler(touchController);
+        }
+        touchController.reset();
+    }
+
+    private void cleanupExistingAnimation() {
+        stopAnimation();
 
         lastEmittedTimestamp = 0;
-        final Iterator<Particles> iterator = particles.iterator();
-        while (iterator.hasNext()) {
-            removeParticles(iterator.next());
-            iterator.remove();
+        liveCountCap = -1;
+        clockStartMillis = -1;
+        while (particles.size() > 0) {
+            removeParticles(particles.size() - 1);
         }
     }
 
+    private void borrowParticlesView() {
+        particlesView = ParticlesViewPool.of(parentView).obtain();
+        particlesView.bind(particles);
+        particlesView.setTouchHandler(touchController);
+        particlesView.setTouchEnabled(touchEnabled);
+        particlesView.setSpriteBatchingEnabled(spriteBatchingEnabled);
+        particlesView.setRotatedSpriteCache(rotatedSpriteCache);
+        particlesView.setLodPolicy(lodPolicy);
+        particlesView.setCullingEnabled(cullingEnabled);
+        particlesView.setDirtyRegionInvalidationEnabled(dirtyRegionInvalidationEnabled);
+        particlesView.addOnAttachStateChangeListener(detachListener);
+    }
+
+    private void returnParticlesView() {
+        particlesView.removeOnAttachStateChangeListener(detachListener);
+        ParticlesViewPool.of(parentView).release(particlesView);
+        particlesView = null;
+    }
+
     private void attachParticlesViewToParent() {
         final ViewParent currentParent = particlesView.getParent();
         if (currentParent != null) {
@@ -533,35 +948,44 @@ public class ParticlesManager {
     }
 
     private void addNewParticles(int numparticles, long initialDelay) {
+        // Draw the randoms for the whole burst in one go rather than one call at a time.
+        random.prefetch(numparticles * RANDOM_FLOATS_PER_PARTICLES);
         for (int i = 0; i < numparticles; i++) {
             Particles particles = recycledParticles.poll();
             if (particles == null) {
                 particles = particlesGenerator.generateParticles(random);
             }
 
-            particles.reset();
+            this.particles.add(particles);
             configureParticles(particles, particlesSource, random, initialDelay);
+            if (qualityGovernor != null) {
+                applyQuality(particles);
+            }
             particles.prepare(bound);
 
-            addParticles(particles);
+            if (animationListener != null) {
+                animationListener.onParticlesEnter(particles);
+            }
         }
     }
 
     private void startNewAnimation() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            tickStartTimeNanos = -1;
+            ParticlesTicker.getInstance().register(this, tickCallback);
+            return;
+        }
+
         // Never-ending animator, we will cancel once the termination condition is reached.
         animator = ValueAnimator.ofInt(0)
                 .setDuration(Long.MAX_VALUE);
         animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
             @Override
             public void onAnimationUpdate(ValueAnimator valueAnimator) {
-                final long elapsedTime = valueAnimator.getCurrentPlayTime();
-                processNewEmission(elapsedTime);
-                updateParticles(elapsedTime);
-
-                if (particles.size() == 0 && elapsedTime >= emissionDuration) {
-                    terminate();
+                if (advance(toElapsedTime(valueAnimator.getCurrentPlayTime()))) {
+                    particlesView.invalidateFrame(particles.getFrame());
                 } else {
-                    particlesView.invalidate();
+                    terminate();
                 }
             }
         });
@@ -569,6 +993,107 @@ public class ParticlesManager {
         animator.start();
     }
 
+    // Called by the ParticlesTicker once per frame while this manager is registered.
+    private void onTick(long frameTimeNanos) {
+        if (tickStartTimeNanos < 0) {
+            tickStartTimeNanos = frameTimeNanos;
+        }
+        if (advance(toElapsedTime((frameTimeNanos - tickStartTimeNanos) / 1000000L))) {
+            particlesView.invalidateFrame(particles.getFrame());
+        } else {
+            terminate();
+        }
+    }
+
+    private void startSimulationThread() {
+        simulationThread = new SimulationThread(particles, particlesView,
+                new SimulationThread.Callback() {
+                    @Override
+                    public boolean onStep(long elapsedTime) {
+                        return advance(toElapsedTime(elapsedTime));
+                    }
+
+                    @Override
+                    public void onFinished() {
+                        terminate();
+                    }
+                });
+        particlesView.bind(simulationThread.getFrameSource());
+        particlesView.setTouchHandler(simulationThread);
+        simulationThread.start();
+    }
+
+    /**
+     * Advance the animation to the provided time on the calling thread, without a view or an
+     * animator: new particles are emitted, every particles is updated and the finished ones are
+     * recycled, exactly as on an animated frame. Together with {@link #setSeed(long)} this runs
+     * the same simulation every time, as fast as it can be computed. The first call starts the
+     * animation. This must not be mixed with {@link #animate()}.
+     *
+     * @param elapsedMillis the time since the start of the animation, which must never decrease.
+     * @return whether the animation should keep going.
+     */
+    public boolean step(long elapsedMillis) {
+        if (!stepping) {
+            if (animationListener != null) {
+                animationListener.onAnimationStart(this);
+            }
+            cleanupExistingAnimation();
+            addNewParticles(numInitialCount, 0);
+            stepping = true;
+        }
+        return advance(elapsedMillis);
+    }
+
+    /**
+     * @return the number of particles currently animated, including the ones whose initial
+     *   delay has not passed yet.
+     */
+    public int getParticlesCount() {
+        return particles.size();
+    }
+
+    // The current draw states, for the ParticleSystem that this manager emits for
+    ParticlesFrame getFrame() {
+        return particles.getFrame();
+    }
+
+    TouchController getTouchController() {
+        return touchController;
+    }
+
+    // Replaces the elapsed time of the frame with the one of the frame clock, if there is one.
+    private long toElapsedTime(long frameElapsedTime) {
+        if (frameClock == null) {
+            return frameElapsedTime;
+        }
+        final long now = frameClock.currentTimeMillis();
+        if (clockStartMillis < 0) {
+            clockStartMillis = now;
+        }
+        return now - clockStartMillis;
+    }
+
+    /**
+     * Emit, update and recycle the particles for the provided elapsed time.
+     *
+     * @return whether the animation should keep going.
+     */
+    private boolean advance(long elapsedTime) {
+        final long start = System.nanoTime();
+        // Advance the store's clock first so that particles emitted for this frame go live right
+        // away instead of round-tripping through the pending queue.
+        particles.activatePending(elapsedTime);
+        processNewEmission(elapsedTime);
+        updateParticles(elapsedTime);
+        if (qualityGovernor != null) {
+            // The view reports the previous frame, which is as recent as its draw time gets.
+            final long drawNanos = particlesView == null ? 0 : particlesView.getLastDrawNanos();
+            qualityGovernor.report(this, System.nanoTime() - start + drawNanos);
+        }
+        return particles.size() != 0 || elapsedTime < emissionDuration;
+    }
+
     private void processNewEmission(long elapsedTime) {
         if (elapsedTime < emissionDuration) {
             if (lastEmittedTimestamp == 0) {
@@ -576,40 +1101,65 @@ public class ParticlesManager {
             } else {
                 final long timeSinceLastEmission = elapsedTime - lastEmittedTimestamp;
 
+                final float emissionScale = qualityGovernor == null ? 1f
+                        : qualityGovernor.getEmissionScale();
+
                 // Randomly determine how many particles to emit
-                final int numNewparticles = (int)
-                        (random.nextFloat() * emissionRate * timeSinceLastEmission);
+                final int numNewparticles = (int) (random.nextFloat() * emissionRate
+                        * emissionScale * timeSinceLastEmission);
                 if (numNewparticles > 0) {
-                    lastEmittedTimestamp += Math.round(emissionRateInverse * numNewparticles);
-                    addNewParticles(numNewparticles, elapsedTime);
+                    lastEmittedTimestamp += Math.round(
+                            emissionRateInverse / emissionScale * numNewparticles);
+                    // The particles over the cap are dropped rather than emitted later.
+                    addNewParticles(capLiveCount(numNewparticles), elapsedTime);
                 }
             }
         }
     }
 
-    private void updateParticles(long elapsedTime) {
-        final Iterator<Particles> iterator = particles.iterator();
-        while (iterator.hasNext()) {
-            final Particles particles = iterator.next();
-            if (!particles.applyUpdate(elapsedTime)) {
-                iterator.remove();
-                removeParticles(particles);
-            }
+    private int capLiveCount(int numNewParticles) {
+        if (qualityGovernor == null || !qualityGovernor.isLiveCountCapped()) {
+            liveCountCap = -1;
+            return numNewParticles;
+        }
+        if (liveCountCap < 0) {
+            liveCountCap = particles.size();
         }
+        return Math.max(0, Math.min(numNewParticles, liveCountCap - particles.size()));
     }
 
-    private void addParticles(Particles particles) {
-        this.particles.add(particles);
-        if (animationListener != null) {
-            animationListener.onParticlesEnter(particles);
+    // Strips what the current quality level no longer affords from a newly configured particles.
+    private void applyQuality(Particles particles) {
+        if (!qualityGovernor.isFadeOutEnabled()) {
+            particles.setFadeOut(null);
+        }
+        if (!qualityGovernor.isRotationEnabled()) {
+            particles.setInitialRotationalVelocity(0);
+            particles.setRotationalAcceleration(0);
+            particles.setTargetRotationalVelocity(null);
         }
     }
 
-    private void removeParticles(Particles particles) {
+    private void updateParticles(long elapsedTime) {
+        if (parallelStepper != null) {
+            parallelStepper.update(particles, elapsedTime);
+        } else {
+            particles.update(elapsedTime);
+        }
+        particles.removeExpired(elapsedTime, onRemoveListener);
+    }
+
+    private void removeParticles(int index) {
+        final Particles particles = this.particles.getParticles(index);
+        onParticlesRemoved(particles);
+        this.particles.remove(index);
+    }
+
+    private void onParticlesRemoved(Particles particles) {
         if (this.animationListener != null) {
             this.animationListener.onParticlesExit(particles);
         }
-        recycledParticles.add(particles);
+        recycledParticles.offer(particles);
     }
 
     protected void configureParticles(Particles particles, ParticlesSource particlesSource,
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2021 TutorialsAndroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tutorials.android.particles;
+
+import com.tutorials.android.particles.particles.Particles;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A bounded FIFO pool of recycled particles backed by an array ring, so that recycling a
+ * particles does not allocate. The ring grows on demand up to {@link #getMaxSize()}; once full,
+ * the {@link EvictionPolicy} decides which particles is dropped.
+ */
+public class ParticlesPool {
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    public enum EvictionPolicy {
+        /** Drop the particles being recycled and keep the ones already pooled. */
+        DISCARD_NEWEST,
+        /** Drop the particles that has been pooled the longest to make room for the new one. */
+        DISCARD_OLDEST
+    }
+
+    private Particles[] items = new Particles[DEFAULT_CAPACITY];
+    private int head, count;
+    private int maxSize = UNBOUNDED;
+    private EvictionPolicy evictionPolicy = EvictionPolicy.DISCARD_NEWEST;
+
+    private long hits, misses, evictions;
+
+    /**
+     * @return a pooled particles or null if the pool is empty. Counted as a hit or a miss.
+     */
+    public Particles poll() {
+        if (count == 0) {
+            misses++;
+            return null;
+        }
+
+        final Particles particles = items[head];
+        items[head] = null;
+        head = (head + 1) % items.length;
+        count--;
+        hits++;
+        return particles;
+    }
+
+    /**
+     * Return a particles to the pool.
+     *
+     * @param particles the particles to recycle.
+     * @return whether the particles was kept in the pool.
+     */
+    public boolean offer(Particles particles) {
+        if (count >= maxSize) {
+            evictions++;
+            if (evictionPolicy == EvictionPolicy.DISCARD_NEWEST || count == 0) {
+                return false;
+            }
+            items[head] = null;
+            head = (head + 1) % items.length;
+            count--;
+        }
+
+        if (count == items.length) {
+            resize(Math.min(maxSize, items.length * 2));
+        }
+        items[(head + count) % items.length] = particles;
+        count++;
+        return true;
+    }
+
+    /**
+     * Fill the pool with newly generated particles until it holds {@code numParticles} or reaches
+     * its max size, e.g. during app startup so that the first burst does not allocate.
+     *
+     * @param generator the generator to create the particles with.
+     * @param random the random to pass to the generator.
+     * @param numParticles the number of particles the pool should hold.
+     */
+    public void prewarm(ParticlesGenerator generator, Random random, int numParticles) {
+        final int target = Math.min(numParticles, maxSize);
+        if (target > items.length) {
+            resize(target);
+        }
+        while (count < target) {
+            items[(head + count) % items.length] = generator.generateParticles(random);
+            count++;
+        }
+    }
+
+    /**
+     * Drop pooled particles (oldest first) until at most {@code size} remain, and shrink the
+     * backing ring accordingly.
+     *
+     * @param size the number of particles to keep.
+     */
+    public void trimToSize(int size) {
+        while (count > size) {
+            items[head] = null;
+            head = (head + 1) % items.length;
+            count--;
+        }
+        resize(Math.max(count, Math.min(DEFAULT_CAPACITY, maxSize)));
+    }
+
+    public void clear() {
+        trimToSize(0);
+    }
+
+    private void resize(int capacity) {
+        final Particles[] resized = new Particles[Math.max(1, capacity)];
+        for (int i = 0; i < count; i++) {
+            resized[i] = items[(head + i) % items.length];
+        }
+        items = resized;
+        head = 0;
+    }
+
+    /**
+     * @param maxSize the maximum number of particles this pool retains, or {@link #UNBOUNDED}.
+     */
+    public void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must be >= 0");
+        }
+        this.maxSize = maxSize;
+        if (count > maxSize || items.length > Math.max(maxSize, 1)) {
+            trimToSize(maxSize);
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+        this.evictionPolicy = evictionPolicy;
+    }
+
+    public EvictionPolicy getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    /**
+     * @return the number of particles currently pooled.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return the number of {@link #poll()} calls that returned a pooled particles.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of {@link #poll()} calls that found the pool empty.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of particles dropped because the pool was full.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public void resetStats() {
+        hits = misses = evictions = 0;
+    }
+}
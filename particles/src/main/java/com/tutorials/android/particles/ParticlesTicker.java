@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2021 TutorialsAndroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tutorials.android.particles;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The single {@link Choreographer} callback that steps every {@link ParticlesManager} and
+ * {@link ParticleSystem} animating on the main thread, in one pass per frame, rather than one
+ * animator each. They register when they start animating and are dropped as soon as they
+ * terminate, and the ticker stops requesting frames once none is left. This must only be used on
+ * the main thread.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+public final class ParticlesTicker implements Choreographer.FrameCallback {
+    private static ParticlesTicker instance;
+
+    private final List<Callback> callbacks = new ArrayList<>();
+    // The manager, system or drawable that registered each callback, at the same index
+    private final List<Object> owners = new ArrayList<>();
+    // The callbacks being stepped this frame, so that they can register and terminate mid-pass
+    private Callback[] stepping = new Callback[0];
+    private boolean frameRequested;
+
+    private ParticlesTicker() {
+    }
+
+    public static ParticlesTicker getInstance() {
+        if (instance == null) {
+            instance = new ParticlesTicker();
+        }
+        return instance;
+    }
+
+    /**
+     * @return the effects currently animating through this ticker, for diagnostics: each is a
+     *   {@link ParticlesManager}, a {@link ParticleSystem} or a {@link ParticlesDrawable}.
+     */
+    public List<Object> getActiveEffects() {
+        return Collections.unmodifiableList(new ArrayList<>(owners));
+    }
+
+    public int getActiveCount() {
+        return callbacks.size();
+    }
+
+    /**
+     * @param owner the effect that the callback steps, reported by {@link #getActiveEffects()}.
+     * @param callback the callback to step once per frame until it is unregistered.
+     */
+    void register(Object owner, Callback callback) {
+        if (!callbacks.contains(callback)) {
+            callbacks.add(callback);
+            owners.add(owner);
+        }
+        if (!frameRequested) {
+            frameRequested = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    void unregister(Callback callback) {
+        final int index = callbacks.indexOf(callback);
+        if (index >= 0) {
+            callbacks.remove(index);
+            owners.remove(index);
+        }
+    }
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameRequested = false;
+        final int count = callbacks.size();
+        if (stepping.length < count) {
+            stepping = new Callback[count];
+        }
+        callbacks.toArray(stepping);
+        for (int i = 0; i < count; i++) {
+            final Callback callback = stepping[i];
+            stepping[i] = null;
+            // Skip the callbacks that an earlier one terminated during this pass.
+            if (callbacks.contains(callback)) {
+                callback.onTick(frameTimeNanos);
+            }
+        }
+
+        if (!callbacks.isEmpty() && !frameRequested) {
+            frameRequested = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    interface Callback {
+        /**
+         * Called once per frame while registered.
+         *
+         * @param frameTimeNanos the time of the frame, in the {@link System#nanoTime()} time base.
+         */
+        void onTick(long frameTimeNanos);
+    }
+}
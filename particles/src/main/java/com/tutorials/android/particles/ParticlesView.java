@@ -17,8 +17,10 @@
 package com.tutorials.android.particles;
 
 import android.annotation.SuppressLint;
+import android.annotation.TargetApi;
 import android.content.Context;
 import android.graphics.Canvas;
+import android.graphics.Rect;
 import android.os.Build;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
@@ -26,7 +28,11 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewParent;
 
+import com.tutorials.android.particles.particles.LodPolicy;
 import com.tutorials.android.particles.particles.Particles;
+import com.tutorials.android.particles.particles.ParticlesFrame;
+import com.tutorials.android.particles.particles.RotatedSpriteCache;
+import com.tutorials.android.particles.particles.SpriteBatcher;
 
 import java.util.List;
 
@@ -35,12 +41,31 @@ import java.util.List;
  * view root, perform the animation, and then once all of the particles has completed its animation,
  * it will automatically remove itself from the parent.
  */
-public class ParticlesView extends View implements View.OnLayoutChangeListener {
+public class ParticlesView extends View {
+    private ParticlesFrame.Source frameSource;
+    // The particles bound with the deprecated bind(List), drawn one by one instead of a frame
     private List<Particles> particles;
+    private final SpriteBatcher spriteBatcher = new SpriteBatcher();
+    private boolean spriteBatchingEnabled = true;
+    private RotatedSpriteCache rotatedSpriteCache;
+    private LodPolicy lodPolicy;
+    private boolean cullingEnabled = true;
+    // Owned by the UI thread
+    private final DamageTracker damageTracker = new DamageTracker();
+    private final Rect damage = new Rect();
+    // Owned by the simulation thread, if any
+    private final DamageTracker simulationDamageTracker = new DamageTracker();
+    private final Rect simulationDamage = new Rect();
+    // The tracker that was updated last, read by getDamagedArea
+    private volatile DamageTracker lastDamageTracker = damageTracker;
+    private boolean dirtyRegionInvalidationEnabled = true;
+    private volatile long lastDrawNanos;
     private boolean terminated;
+    // Whether this view is idle in a ParticlesViewPool rather than waiting to be removed
+    private boolean parked;
 
     private boolean touchEnabled;
-    private Particles draggedParticles;
+    private TouchHandler touchHandler;
 
     public static ParticlesView newInstance(Context context) {
         final ParticlesView particlesView = new ParticlesView(context, null);
@@ -60,13 +85,64 @@ public class ParticlesView extends View implements View.OnLayoutChangeListener {
         super(context, attrs);
     }
 
+    /**
+     * Sets the source of the particles frames to be animated by this view, e.g. a
+     * {@link com.tutorials.android.particles.particles.ParticleStore}.
+     *
+     * @param frameSource the source of the particles frames to be animated.
+     */
+    public void bind(ParticlesFrame.Source frameSource) {
+        this.frameSource = frameSource;
+        this.particles = null;
+    }
+
     /**
      * Sets the list of particles to be animated by this view.
      *
      * @param particles the list of particles to be animated.
+     * @deprecated bind the {@link ParticlesFrame.Source} the particles are stored in instead, e.g.
+     *   their {@link Particles#getStore() store}, so that they are drawn in a single pass.
      */
-    public void bind(List<Particles> particles) {
+    @Deprecated
+    public void bind(final List<Particles> particles) {
+        this.frameSource = null;
         this.particles = particles;
+        this.touchHandler = new TouchHandler() {
+            private Particles draggedParticles;
+
+            @Override
+            public boolean onTouchEvent(MotionEvent event) {
+                switch (event.getAction()) {
+                    case MotionEvent.ACTION_DOWN:
+                        for (Particles p : particles) {
+                            if (p.onTouchDown(event)) {
+                                draggedParticles = p;
+                                return true;
+                            }
+                        }
+                        break;
+                    case MotionEvent.ACTION_MOVE:
+                        if (draggedParticles != null) {
+                            draggedParticles.onTouchMove(event);
+                            return true;
+                        }
+                        break;
+                    case MotionEvent.ACTION_UP:
+                    case MotionEvent.ACTION_CANCEL:
+                        if (draggedParticles != null) {
+                            draggedParticles.onTouchUp(event);
+                            draggedParticles = null;
+                            return true;
+                        }
+                        break;
+                }
+                return false;
+            }
+        };
+    }
+
+    void setTouchHandler(TouchHandler touchHandler) {
+        this.touchHandler = touchHandler;
     }
 
     /**
@@ -78,96 +154,227 @@ public class ParticlesView extends View implements View.OnLayoutChangeListener {
         this.touchEnabled = touchEnabled;
     }
 
+    /**
+     * @see ParticlesManager#setSpriteBatchingEnabled(boolean)
+     *
+     * @param spriteBatchingEnabled whether or not to batch the bitmap particles draw calls.
+     */
+    public void setSpriteBatchingEnabled(boolean spriteBatchingEnabled) {
+        this.spriteBatchingEnabled = spriteBatchingEnabled;
+    }
+
+    /**
+     * @see ParticlesManager#setRotatedSpriteCache(RotatedSpriteCache)
+     *
+     * @param rotatedSpriteCache the cache of pre-rotated sprites, or null to disable it.
+     */
+    public void setRotatedSpriteCache(RotatedSpriteCache rotatedSpriteCache) {
+        this.rotatedSpriteCache = rotatedSpriteCache;
+    }
+
+    /**
+     * @see ParticlesManager#setLodPolicy(LodPolicy)
+     *
+     * @param lodPolicy the level of detail to draw the particles with, or null to disable it.
+     */
+    public void setLodPolicy(LodPolicy lodPolicy) {
+        this.lodPolicy = lodPolicy;
+    }
+
+    /**
+     * @see ParticlesManager#setCullingEnabled(boolean)
+     *
+     * @param cullingEnabled whether or not to skip the particles outside of the canvas clip.
+     */
+    public void setCullingEnabled(boolean cullingEnabled) {
+        this.cullingEnabled = cullingEnabled;
+    }
+
+    /**
+     * @see ParticlesManager#setDirtyRegionInvalidationEnabled(boolean)
+     *
+     * @param dirtyRegionInvalidationEnabled whether or not to only redraw the region that changed.
+     */
+    public void setDirtyRegionInvalidationEnabled(boolean dirtyRegionInvalidationEnabled) {
+        this.dirtyRegionInvalidationEnabled = dirtyRegionInvalidationEnabled;
+    }
+
+    /**
+     * @see ParticlesManager#getDamagedArea()
+     *
+     * @return the area in pixels of the region that changed with the last frame.
+     */
+    public int getDamagedArea() {
+        return lastDamageTracker.getDamagedArea();
+    }
+
+    /**
+     * @return how long the last frame took to draw, in nanoseconds.
+     */
+    long getLastDrawNanos() {
+        return lastDrawNanos;
+    }
+
+    /**
+     * Invalidate the region that changed between the previously invalidated frame and the provided
+     * one. This must be called on the UI thread.
+     *
+     * @param frame the frame that is about to be drawn.
+     */
+    @SuppressWarnings("deprecation")
+    void invalidateFrame(ParticlesFrame frame) {
+        final boolean damaged = damageTracker.update(frame, damage);
+        lastDamageTracker = damageTracker;
+        if (!dirtyRegionInvalidationEnabled) {
+            invalidate();
+        } else if (damaged) {
+            if (isHardwareAccelerated()
+                    && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                // Hardware accelerated windows ignore the region from Lollipop.
+                invalidate();
+            } else {
+                // Deprecated because of the above, but software rendered windows still only
+                // redraw the region.
+                invalidate(damage);
+            }
+        }
+    }
+
+    /**
+     * Like {@link #invalidateFrame(ParticlesFrame)} on the next animation frame, but this must be
+     * called from the simulation thread that produced the frame, which has a damage tracker of its
+     * own.
+     *
+     * @param frame the frame that is about to be drawn.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    void postInvalidateFrameOnAnimation(ParticlesFrame frame) {
+        final Rect damage = simulationDamage;
+        final boolean damaged = simulationDamageTracker.update(frame, damage);
+        lastDamageTracker = simulationDamageTracker;
+        if (!dirtyRegionInvalidationEnabled) {
+            postInvalidateOnAnimation();
+        } else if (damaged) {
+            postInvalidateOnAnimation(damage.left, damage.top, damage.right, damage.bottom);
+        }
+    }
+
     /**
      * Terminate the current running animation (if any) and remove this view from the parent.
      */
     public void terminate() {
         if (!terminated) {
             this.terminated = true;
-            getParent().requestLayout();
+            removeFromParent();
         }
     }
 
     /**
-     * Reset the internal state of this view to allow for a new particles animation.
+     * Remove this view from its parent after the current frame. The removal is posted so that it
+     * never happens in the middle of a traversal of the parent, e.g. while it dispatches a detach,
+     * and is skipped if this view is reused in the meantime.
+     */
+    void removeFromParent() {
+        this.terminated = true;
+        this.parked = false;
+        final ViewParent parent = getParent();
+        if (parent instanceof ViewGroup) {
+            final ViewGroup vg = (ViewGroup) parent;
+            vg.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (terminated && !parked && getParent() == vg) {
+                        vg.removeView(ParticlesView.this);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Stop drawing and hide this view but leave it in its parent, where it waits to be reused by
+     * another animation. Unlike {@link #terminate()}, this view is not removed.
+     */
+    void park() {
+        this.terminated = true;
+        this.parked = true;
+        this.frameSource = null;
+        this.particles = null;
+        this.touchHandler = null;
+        setVisibility(INVISIBLE);
+    }
+
+    /**
+     * Show a parked view again, it still needs to be {@link #reset()} before it is used.
+     */
+    void unpark() {
+        this.parked = false;
+        setVisibility(VISIBLE);
+    }
+
+    /**
+     * Reset the internal state of this view to allow for a new particles animation. This must not
+     * be called while a simulation thread is running, which the manager ensures by stopping it
+     * first.
      */
     public void reset() {
         this.terminated = false;
+        damageTracker.reset();
+        simulationDamageTracker.reset();
+        lastDamageTracker = damageTracker;
     }
 
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
-        final ViewGroup parent = (ViewGroup) getParent();
-        parent.removeOnLayoutChangeListener(this);
-        parent.addOnLayoutChangeListener(this);
 
         // If we did not bind before attaching to the window, that means this particlesView no longer
         // has a particlesManager backing it and should just be terminated.
-        if (particles == null) {
+        if (frameSource == null && particles == null) {
             terminate();
         }
     }
 
-    @Override
-    public void onLayoutChange(View view, int i, int i1, int i2, int i3, int i4, int i5, int i6,
-            int i7) {
-        if (terminated) {
-            final ViewParent parent = getParent();
-            if (parent instanceof ViewGroup) {
-                final ViewGroup vg = (ViewGroup) parent;
-                vg.removeViewInLayout(this);
-                vg.removeOnLayoutChangeListener(this);
-                vg.invalidate();
-            }
-        }
-    }
-
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
 
-        if (!terminated) {
+        if (!terminated && particles != null) {
             canvas.save();
-            for (Particles particles : this.particles) {
-                particles.draw(canvas);
+            for (Particles p : particles) {
+                p.draw(canvas);
             }
             canvas.restore();
+        } else if (!terminated) {
+            final long start = System.nanoTime();
+            canvas.save();
+            final ParticlesFrame frame = frameSource.acquireFrame();
+            if (lodPolicy != null) {
+                lodPolicy.beginFrame(Math.max(Math.abs(getScaleX()), Math.abs(getScaleY())));
+            }
+            frame.setLodPolicy(lodPolicy);
+            frame.setCullingEnabled(cullingEnabled);
+            if (spriteBatchingEnabled && SpriteBatcher.isSupported(canvas)) {
+                spriteBatcher.draw(canvas, frame);
+            } else if (rotatedSpriteCache != null) {
+                rotatedSpriteCache.draw(canvas, frame);
+            } else {
+                frame.draw(canvas);
+            }
+            canvas.restore();
+            lastDrawNanos = System.nanoTime() - start;
         }
     }
 
     @SuppressLint("ClickableViewAccessibility")
     @Override
     public boolean onTouchEvent(MotionEvent event) {
-        boolean handled = false;
-        if (touchEnabled) {
-            switch (event.getAction()) {
-                case MotionEvent.ACTION_DOWN:
-                    for (Particles particles : particles) {
-                        if (particles.onTouchDown(event)) {
-                            draggedParticles = particles;
-                            handled = true;
-                            break;
-                        }
-                    }
-                    break;
-                case MotionEvent.ACTION_MOVE:
-                    if (draggedParticles != null) {
-                        draggedParticles.onTouchMove(event);
-                        handled = true;
-                    }
-                    break;
-                case MotionEvent.ACTION_UP:
-                case MotionEvent.ACTION_CANCEL:
-                    if (draggedParticles != null) {
-                        draggedParticles.onTouchUp(event);
-                        draggedParticles = null;
-                        handled = true;
-                    }
-                    break;
-            }
-        }
-
+        final boolean handled = touchEnabled && touchHandler != null
+                && touchHandler.onTouchEvent(event);
         return handled || super.onTouchEvent(event);
     }
+
+    interface TouchHandler {
+        boolean onTouchEvent(MotionEvent event);
+    }
 }
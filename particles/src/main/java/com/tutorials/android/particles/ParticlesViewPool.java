@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2021 TutorialsAndroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tutorials.android.particles;
+
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@link ParticlesView}s of a parent view that are idle and can be reused by the next
+ * animation. When a {@link ParticlesManager} finishes, its view is parked rather than removed: it
+ * stops drawing and is hidden but stays in the parent, so neither removing it nor adding a new
+ * view for the next animation costs a layout pass of the parent. Views beyond
+ * {@link #setMaxSize(int) the max size} are removed from the parent after the current frame, also
+ * without a layout pass.
+ *
+ * <p>A parked view keeps the place it had among the children of the parent, so a reused view may
+ * be drawn below views that were added after it, unless it is elevated. This must only be used on
+ * the main thread.
+ */
+public class ParticlesViewPool {
+    public static final int DEFAULT_MAX_SIZE = 1;
+
+    private final ViewGroup parentView;
+    private final List<ParticlesView> parked = new ArrayList<>();
+    private int maxSize = DEFAULT_MAX_SIZE;
+
+    private ParticlesViewPool(ViewGroup parentView) {
+        this.parentView = parentView;
+    }
+
+    /**
+     * @param parentView the parent view of the particles views.
+     * @return the pool of the provided parent, which lives as long as the parent.
+     */
+    public static ParticlesViewPool of(ViewGroup parentView) {
+        ParticlesViewPool pool = (ParticlesViewPool) parentView.getTag(R.id.particles_view_pool);
+        if (pool == null) {
+            pool = new ParticlesViewPool(parentView);
+            parentView.setTag(R.id.particles_view_pool, pool);
+        }
+        return pool;
+    }
+
+    /**
+     * @param maxSize the maximum number of idle views to keep in the parent, 0 to remove every
+     *   view once its animation finishes.
+     * @return the pool so that the set calls can be chained.
+     */
+    public ParticlesViewPool setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        trimToSize(maxSize);
+        return this;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the number of idle views in the parent.
+     */
+    public int size() {
+        return parked.size();
+    }
+
+    /**
+     * Remove every idle view from the parent.
+     */
+    public void clear() {
+        trimToSize(0);
+    }
+
+    /**
+     * @return an idle view that is already in the parent, or a new view to be added to it.
+     */
+    ParticlesView obtain() {
+        while (!parked.isEmpty()) {
+            final ParticlesView view = parked.remove(parked.size() - 1);
+            // Skip the views that were removed from the parent while they were parked.
+            if (view.getParent() == parentView) {
+                view.unpark();
+                return view;
+            }
+        }
+        return ParticlesView.newInstance(parentView.getContext());
+    }
+
+    /**
+     * Park the provided view if there is room for it, or else remove it from the parent.
+     *
+     * @param view a view whose animation has finished.
+     */
+    void release(ParticlesView view) {
+        if (parked.size() < maxSize && view.getParent() == parentView) {
+            view.park();
+            parked.add(view);
+        } else {
+            view.removeFromParent();
+        }
+    }
+
+    private void trimToSize(int size) {
+        while (parked.size() > size) {
+            parked.remove(parked.size() - 1).removeFromParent();
+        }
+    }
+}
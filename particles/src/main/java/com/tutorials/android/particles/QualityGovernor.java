@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2021 TutorialsAndroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tutorials.android.particles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds the particles animations to a frame-time budget. Every {@link ParticlesManager} that uses
+ * a governor reports how long it spent updating and drawing each frame; while the average total
+ * stays over the budget, the governor steps down one {@link Level} at a time, and once there is
+ * enough headroom again it steps back up. A single governor can be shared by several managers so
+ * that their combined cost is held to the budget.
+ * <p>
+ * The managers apply the reductions of the current level to the particles they emit from then
+ * on; particles that are already alive keep their configuration.
+ * <p>
+ * The draw time of a frame is the time that the {@link ParticlesView} takes in onDraw to record
+ * the draw calls. With hardware acceleration the rendering itself happens later on the render
+ * thread and the GPU, which the governor does not see, so the budget should leave room for it.
+ * Managers without a view, e.g. the emitters of a {@link ParticleSystem} or the manager of a
+ * {@link ParticlesDrawable}, only report their update time.
+ */
+public class QualityGovernor {
+    public static final float DEFAULT_FRAME_BUDGET_MILLIS = 8f;
+
+    // Quality is only restored once the average frame time is below this share of the budget.
+    private static final float RESTORE_THRESHOLD = 0.75f;
+    // Weight of the latest frame in the average frame time
+    private static final float SMOOTHING = 0.1f;
+
+    /**
+     * The quality levels from the best to the cheapest. Each level also applies the reductions of
+     * the levels before it, and from {@link #REDUCED_EMISSION} on each level halves the emission
+     * rate of the level before it.
+     */
+    public enum Level {
+        /** Everything is emitted as configured. */
+        FULL,
+        /** Only half of the configured emission rate is emitted. */
+        REDUCED_EMISSION,
+        /** No more particles are emitted than were alive when this level was reached. */
+        CAPPED_COUNT,
+        /** New particles no longer fade out. */
+        NO_FADE,
+        /** New particles no longer rotate over time. */
+        NO_ROTATION
+    }
+
+    private static final Level[] LEVELS = Level.values();
+    // The share of the configured emission rate kept at each level, indexed by ordinal
+    private static final float[] EMISSION_SCALES = { 1f, 0.5f, 0.25f, 0.125f, 0.0625f };
+
+    public interface Listener {
+        /**
+         * Called on the thread that reported the frame that changed the level, which is a
+         * simulation thread for managers that simulate off the main thread.
+         *
+         * @param previous the level before the change.
+         * @param level the new level.
+         * @param averageFrameTimeMillis the average frame time that led to the change.
+         */
+        void onLevelChanged(Level previous, Level level, float averageFrameTimeMillis);
+    }
+
+    private final float frameBudgetMillis;
+    private int degradeAfterFrames = 10;
+    private int restoreAfterFrames = 60;
+    private Listener listener;
+
+    private volatile Level level = Level.FULL;
+    private volatile float averageFrameTimeMillis;
+    private int overBudgetFrames, underBudgetFrames;
+
+    // The managers that reported during the current frame, and their total cost so far
+    private final List<Object> reporters = new ArrayList<>();
+    private long frameNanos;
+
+    public QualityGovernor() {
+        this(DEFAULT_FRAME_BUDGET_MILLIS);
+    }
+
+    /**
+     * @param frameBudgetMillis the time that updating and drawing every particles should take per
+     *   frame, across all the managers sharing this governor.
+     */
+    public QualityGovernor(float frameBudgetMillis) {
+        this.frameBudgetMillis = frameBudgetMillis;
+    }
+
+    /**
+     * Configures how quickly the governor reacts. The defaults step down after 10 frames over
+     * budget and back up after 60 frames with headroom.
+     *
+     * @param degradeAfterFrames the number of consecutive frames over budget before stepping down.
+     * @param restoreAfterFrames the number of consecutive frames with headroom before stepping up.
+     * @return the governor so that the set calls can be chained.
+     */
+    public synchronized QualityGovernor setHysteresis(int degradeAfterFrames,
+                                                      int restoreAfterFrames) {
+        this.degradeAfterFrames = Math.max(1, degradeAfterFrames);
+        this.restoreAfterFrames = Math.max(1, restoreAfterFrames);
+        return this;
+    }
+
+    /**
+     * @param listener the listener to notify of every level change, or null to clear it.
+     * @return the governor so that the set calls can be chained.
+     */
+    public synchronized QualityGovernor setListener(Listener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public float getAverageFrameTimeMillis() {
+        return averageFrameTimeMillis;
+    }
+
+    public float getFrameBudgetMillis() {
+        return frameBudgetMillis;
+    }
+
+    /**
+     * @return the share of the configured emission rate to emit at the current level.
+     */
+    public float getEmissionScale() {
+        return EMISSION_SCALES[level.ordinal()];
+    }
+
+    public boolean isLiveCountCapped() {
+        return level.compareTo(Level.CAPPED_COUNT) >= 0;
+    }
+
+    public boolean isFadeOutEnabled() {
+        return level.compareTo(Level.NO_FADE) < 0;
+    }
+
+    public boolean isRotationEnabled() {
+        return level.compareTo(Level.NO_ROTATION) < 0;
+    }
+
+    /**
+     * Go back to {@link Level#FULL} and forget the measured frame times.
+     */
+    public synchronized void reset() {
+        final Level previous = level;
+        level = Level.FULL;
+        averageFrameTimeMillis = 0;
+        overBudgetFrames = underBudgetFrames = 0;
+        reporters.clear();
+        frameNanos = 0;
+        if (previous != Level.FULL && listener != null) {
+            listener.onLevelChanged(previous, Level.FULL, 0);
+        }
+    }
+
+    /**
+     * Report the time that a manager spent on a frame. A frame ends when one of the managers
+     * reports for the second time, so the costs of the managers that share this governor add up.
+     *
+     * @param reporter the manager that is reporting.
+     * @param nanos the time spent updating and drawing the particles.
+     */
+    synchronized void report(Object reporter, long nanos) {
+        for (int i = 0, size = reporters.size(); i < size; i++) {
+            if (reporters.get(i) == reporter) {
+                onFrame(frameNanos / 1000000f);
+                reporters.clear();
+                frameNanos = 0;
+                break;
+            }
+        }
+        reporters.add(reporter);
+        frameNanos += nanos;
+    }
+
+    private void onFrame(float frameTimeMillis) {
+        final float average = averageFrameTimeMillis == 0 ? frameTimeMillis
+                : averageFrameTimeMillis + (frameTimeMillis - averageFrameTimeMillis) * SMOOTHING;
+        averageFrameTimeMillis = average;
+
+        final Level previous = level;
+        final int ordinal = previous.ordinal();
+        if (average > frameBudgetMillis) {
+            underBudgetFrames = 0;
+            if (++overBudgetFrames >= degradeAfterFrames && ordinal < LEVELS.length - 1) {
+                level = LEVELS[ordinal + 1];
+            }
+        } else if (average < frameBudgetMillis * RESTORE_THRESHOLD) {
+            overBudgetFrames = 0;
+            if (++underBudgetFrames >= restoreAfterFrames && ordinal > 0) {
+                level = LEVELS[ordinal - 1];
+            }
+        } else {
+            overBudgetFrames = underBudgetFrames = 0;
+        }
+
+        if (level != previous) {
+            // Give the new level a full hysteresis period before the next change.
+            overBudgetFrames = underBudgetFrames = 0;
+            if (listener != null) {
+                listener.onLevelChanged(previous, level, average);
+            }
+        }
+    }
+}
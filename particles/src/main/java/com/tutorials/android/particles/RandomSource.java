@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2021 TutorialsAndroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tutorials.android.particles;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The source of randomness used to generate and configure particles. Unlike {@link Random}, which
+ * pays for an atomic update of its seed on every call, this is a plain SplitMix64 generator that
+ * keeps its state in a single field, so it must only be used from one thread at a time. It is
+ * still a {@link Random} so that it can be passed to any {@link ParticlesGenerator}.
+ * <p>
+ * Subclasses can plug in a different generator by overriding {@link #nextLong()} and
+ * {@link #setSeed(long)}; every other method is derived from those two.
+ */
+public class RandomSource extends Random {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final float FLOAT_UNIT = 1f / (1 << 24);
+    private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+
+    private static final AtomicLong seedUniquifier = new AtomicLong(System.nanoTime());
+
+    // Not initialized here since Random's constructor calls setSeed before our initializers run
+    private long state;
+
+    // Floats drawn ahead of time by prefetch(int), served by nextFloat() in order
+    private float[] prefetched;
+    private int prefetchedIndex, prefetchedCount;
+
+    /**
+     * Creates a source with a seed that is very likely to be distinct from any other source.
+     */
+    public RandomSource() {
+        this(mix64(seedUniquifier.addAndGet(GOLDEN_GAMMA) ^ System.nanoTime()));
+    }
+
+    /**
+     * @param seed the initial seed, the same seed always produces the same sequence.
+     */
+    public RandomSource(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        super.setSeed(seed);
+        state = seed;
+        prefetchedIndex = prefetchedCount = 0;
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    @Override
+    public long nextLong() {
+        return mix64(state += GOLDEN_GAMMA);
+    }
+
+    @Override
+    public int nextInt() {
+        return (int) nextLong();
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+
+    @Override
+    public float nextFloat() {
+        if (prefetchedIndex < prefetchedCount) {
+            return prefetched[prefetchedIndex++];
+        }
+        return (nextLong() >>> 40) * FLOAT_UNIT;
+    }
+
+    @Override
+    public double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    /**
+     * Fill the provided array with uniformly distributed floats in [0, 1). This produces the same
+     * values as calling {@link #nextFloat()} once per element, but in a single tight loop.
+     *
+     * @param out the array to fill.
+     */
+    public void fill(float[] out) {
+        fill(out, 0, out.length);
+    }
+
+    /**
+     * @see #fill(float[])
+     *
+     * @param out the array to fill.
+     * @param offset the first index to fill.
+     * @param length the number of floats to fill.
+     */
+    public void fill(float[] out, int offset, int length) {
+        int i = offset;
+        final int end = offset + length;
+        // Serve anything already prefetched first to keep the sequence in order.
+        while (i < end && prefetchedIndex < prefetchedCount) {
+            out[i++] = prefetched[prefetchedIndex++];
+        }
+        if (getClass() != RandomSource.class) {
+            for (; i < end; i++) {
+                out[i] = (nextLong() >>> 40) * FLOAT_UNIT;
+            }
+            return;
+        }
+
+        long s = state;
+        for (; i < end; i++) {
+            s += GOLDEN_GAMMA;
+            out[i] = (mix64(s) >>> 40) * FLOAT_UNIT;
+        }
+        state = s;
+    }
+
+    /**
+     * Draw the provided number of floats in bulk so that the next calls to {@link #nextFloat()}
+     * are simple array reads. Used ahead of a burst of particles configuration.
+     *
+     * @param count the number of floats that are about to be needed.
+     */
+    void prefetch(int count) {
+        final int buffered = prefetchedCount - prefetchedIndex;
+        if (count <= buffered) {
+            return;
+        }
+        if (prefetched == null || prefetched.length < count) {
+            final float[] grown = new float[Math.max(count, 64)];
+            if (buffered > 0) {
+                System.arraycopy(prefetched, prefetchedIndex, grown, 0, buffered);
+            }
+            prefetched = grown;
+        } else if (buffered > 0) {
+            System.arraycopy(prefetched, prefetchedIndex, prefetched, 0, buffered);
+        }
+        prefetchedIndex = prefetchedCount = 0;
+        fill(prefetched, buffered, count - buffered);
+        prefetchedCount = count;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
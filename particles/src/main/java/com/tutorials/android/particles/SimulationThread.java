@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2021 TutorialsAndroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tutorials.android.particles;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.view.Choreographer;
+import android.view.MotionEvent;
+
+import com.tutorials.android.particles.particles.ParticleStore;
+import com.tutorials.android.particles.particles.ParticlesFrame;
+import com.tutorials.android.particles.particles.ParticlesFrameBuffer;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Steps a {@link ParticlesManager} on its own thread, paced by that thread's
+ * {@link Choreographer}, and publishes every stepped frame through a {@link ParticlesFrameBuffer}
+ * for the {@link ParticlesView} to draw. Touch events are hit-tested on the UI thread against the
+ * drawn frame and queued for the simulation thread, which owns every particles state.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+class SimulationThread implements Choreographer.FrameCallback, ParticlesView.TouchHandler {
+    interface Callback {
+        /**
+         * Called on the simulation thread to advance the animation.
+         *
+         * @return whether the animation should keep going.
+         */
+        boolean onStep(long elapsedTime);
+
+        /**
+         * Called on the main thread once {@link #onStep(long)} returned false.
+         */
+        void onFinished();
+    }
+
+    private final ParticleStore particles;
+    private final ParticlesView particlesView;
+    private final Callback callback;
+    private final ParticlesFrameBuffer frameBuffer = new ParticlesFrameBuffer();
+    private final TouchController touchController;
+    private final ConcurrentLinkedQueue<MotionEvent> touchEvents = new ConcurrentLinkedQueue<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private HandlerThread thread;
+    private Choreographer choreographer;
+    private volatile boolean running;
+    private long startFrameTimeNanos;
+
+    // Owned by the UI thread
+    private boolean stopped;
+    private boolean dragging;
+
+    SimulationThread(ParticleStore particles, ParticlesView particlesView, Callback callback) {
+        this.particles = particles;
+        this.particlesView = particlesView;
+        this.callback = callback;
+        this.touchController = new TouchController(particles);
+    }
+
+    ParticlesFrame.Source getFrameSource() {
+        return frameBuffer;
+    }
+
+    /**
+     * Start stepping. Everything that was set up on the store so far is published as the first
+     * frame.
+     */
+    void start() {
+        running = true;
+        startFrameTimeNanos = -1;
+        frameBuffer.publish(particles.getFrame());
+
+        thread = new HandlerThread("ParticlesSimulation", Process.THREAD_PRIORITY_DISPLAY);
+        thread.start();
+        new Handler(thread.getLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+                choreographer = Choreographer.getInstance();
+                choreographer.postFrameCallback(SimulationThread.this);
+            }
+        });
+    }
+
+    /**
+     * Stop stepping and wait for the simulation thread to finish its current frame, so that the
+     * store can be safely accessed again by the caller.
+     */
+    void stop() {
+        stopped = true;
+        running = false;
+        if (thread != null) {
+            thread.quit();
+            boolean interrupted = false;
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+
+        MotionEvent event;
+        while ((event = touchEvents.poll()) != null) {
+            event.recycle();
+        }
+        touchController.reset();
+        dragging = false;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running) {
+            return;
+        }
+        if (startFrameTimeNanos < 0) {
+            startFrameTimeNanos = frameTimeNanos;
+        }
+
+        MotionEvent event;
+        while ((event = touchEvents.poll()) != null) {
+            touchController.onTouchEvent(event);
+            event.recycle();
+        }
+
+        final long elapsedTime = (frameTimeNanos - startFrameTimeNanos) / 1000000L;
+        final boolean keepGoing = callback.onStep(elapsedTime);
+        final ParticlesFrame frame = particles.getFrame();
+        frameBuffer.publish(frame);
+        particlesView.postInvalidateFrameOnAnimation(frame);
+
+        if (keepGoing) {
+            choreographer.postFrameCallback(this);
+        } else {
+            running = false;
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (!stopped) {
+                        callback.onFinished();
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        switch (event.getAction()) {
+            case MotionEvent.ACTION_DOWN:
+                final ParticlesFrame frame = frameBuffer.acquireFrame();
+                dragging = frame.hitTest(event.getX(), event.getY()) >= 0;
+                break;
+            case MotionEvent.ACTION_MOVE:
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                if (dragging) {
+                    touchEvents.add(MotionEvent.obtain(event));
+                    dragging = false;
+                    return true;
+                }
+                return false;
+        }
+
+        if (dragging) {
+            touchEvents.add(MotionEvent.obtain(event));
+        }
+        return dragging;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2021 TutorialsAndroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tutorials.android.particles;
+
+import android.view.MotionEvent;
+
+import com.tutorials.android.particles.particles.ParticleStore;
+import com.tutorials.android.particles.particles.Particles;
+
+/**
+ * Applies touch events to the particles of a store so that they can be dragged and flung. This
+ * must be called on the thread that simulates the store.
+ */
+class TouchController implements ParticlesView.TouchHandler {
+    private final ParticleStore particles;
+    private Particles draggedParticles;
+
+    TouchController(ParticleStore particles) {
+        this.particles = particles;
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        boolean handled = false;
+        switch (event.getAction()) {
+            case MotionEvent.ACTION_DOWN:
+                for (int i = 0, size = this.particles.liveSize(); i < size; i++) {
+                    final Particles particles = this.particles.getParticles(i);
+                    if (particles.onTouchDown(event)) {
+                        draggedParticles = particles;
+                        handled = true;
+                        break;
+                    }
+                }
+                break;
+            case MotionEvent.ACTION_MOVE:
+                if (draggedParticles != null) {
+                    draggedParticles.onTouchMove(event);
+                    handled = true;
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                if (draggedParticles != null) {
+                    draggedParticles.onTouchUp(event);
+                    draggedParticles = null;
+                    handled = true;
+                }
+                break;
+        }
+        return handled;
+    }
+
+    void reset() {
+        if (draggedParticles != null) {
+            draggedParticles.cancelTouch();
+            draggedParticles = null;
+        }
+    }
+}
@@ -18,12 +18,19 @@ package com.tutorials.android.particles;
 
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.view.animation.Interpolator;
 
+import com.tutorials.android.particles.particles.Sprite;
+import com.tutorials.android.particles.particles.SpriteAtlas;
+
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class Utils {
     private static final Paint PAINT = new Paint();
@@ -31,6 +38,23 @@ public class Utils {
         PAINT.setStyle(Paint.Style.FILL);
     }
 
+    public enum Shape {
+        CIRCLE, SQUARE, TRIANGLE
+    }
+
+    private static final Shape[] DEFAULT_SHAPES = Shape.values();
+
+    // The most recently used generated atlases, shared by every caller in the process. Atlases
+    // that fall out of the cache stay valid for the particles that still use them.
+    private static final int MAX_CACHED_ATLASES = 8;
+    private static final Map<AtlasKey, SpriteAtlas> atlasCache =
+            new LinkedHashMap<AtlasKey, SpriteAtlas>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<AtlasKey, SpriteAtlas> eldest) {
+                    return size() > MAX_CACHED_ATLASES;
+                }
+            };
+
     private static Interpolator defaultAlphaInterpolator;
     public static Interpolator getDefaultAlphaInterpolator() {
         if (defaultAlphaInterpolator == null) {
@@ -49,19 +73,130 @@ public class Utils {
         return bitmaps;
     }
 
+    /**
+     * @see #generateParticlesSprites(int[], int, Shape...) with every shape.
+     */
+    public static List<Sprite> generateParticlesSprites(int[] colors, int size) {
+        return generateParticlesSprites(colors, size, DEFAULT_SHAPES);
+    }
+
+    /**
+     * The mask based equivalent of {@link #generateParticlesAtlas(int[], int, Shape...)}: every
+     * shape is rasterized once into an {@link Bitmap.Config#ALPHA_8} mask and tinted with each
+     * color when drawn, so the sprites take a quarter of the memory per shape and the same
+     * memory regardless of the number of colors.
+     *
+     * @param colors the colors of the sprites.
+     * @param size the width and height of every sprite.
+     * @param shapes the shapes to draw in each color.
+     * @return the sprites in the same order as
+     *   {@link #generateParticlesAtlas(int[], int, Shape...)}.
+     */
+    public static List<Sprite> generateParticlesSprites(int[] colors, int size, Shape... shapes) {
+        final SpriteAtlas masks = generateParticlesMaskAtlas(size, shapes);
+        final List<Sprite> sprites = new ArrayList<>(colors.length * masks.size());
+        for (int color : colors) {
+            for (Sprite mask : masks.getSprites()) {
+                sprites.add(mask.withColor(color));
+            }
+        }
+        return sprites;
+    }
+
+    /**
+     * @param size the width and height of every mask.
+     * @param shapes the shapes to draw.
+     * @return the shared atlas of {@link Bitmap.Config#ALPHA_8} masks of the provided shapes, in
+     *   the same order. It must not be recycled.
+     */
+    public static SpriteAtlas generateParticlesMaskAtlas(int size, Shape... shapes) {
+        return getOrBuildAtlas(null, size, shapes);
+    }
+
+    /**
+     * @see #generateParticlesAtlas(int[], int, Shape...) with every shape.
+     */
+    public static SpriteAtlas generateParticlesAtlas(int[] colors, int size) {
+        return generateParticlesAtlas(colors, size, DEFAULT_SHAPES);
+    }
+
+    /**
+     * Rasterizes every shape in every color into a single atlas, in the same order as
+     * {@link #generateParticlesBitmaps(int[], int)}: all of the shapes of the first color, then
+     * all of the shapes of the second color, etc. Atlases are cached by their colors, size and
+     * shapes, so identical sprites are only rasterized once.
+     *
+     * @param colors the colors of the sprites.
+     * @param size the width and height of every sprite.
+     * @param shapes the shapes to draw in each color.
+     * @return the shared atlas, which must not be recycled.
+     */
+    public static SpriteAtlas generateParticlesAtlas(int[] colors, int size, Shape... shapes) {
+        return getOrBuildAtlas(colors.clone(), size, shapes);
+    }
+
+    // Builds an ARGB atlas of every shape in every color, or an ALPHA_8 atlas of every shape if
+    // there are no colors.
+    private static synchronized SpriteAtlas getOrBuildAtlas(int[] colors, int size,
+                                                            Shape[] shapes) {
+        final AtlasKey key = new AtlasKey(colors, size, shapes.clone());
+        SpriteAtlas atlas = atlasCache.get(key);
+        if (atlas == null) {
+            final SpriteAtlas.Builder builder;
+            if (colors == null) {
+                builder = new SpriteAtlas.Builder(Bitmap.Config.ALPHA_8);
+                for (Shape shape : key.shapes) {
+                    builder.add(size, size, canvas -> drawShape(canvas, shape, Color.BLACK, size));
+                }
+            } else {
+                builder = new SpriteAtlas.Builder();
+                for (int color : colors) {
+                    for (Shape shape : key.shapes) {
+                        builder.add(size, size, canvas -> drawShape(canvas, shape, color, size));
+                    }
+                }
+            }
+            atlas = builder.build();
+            atlasCache.put(key, atlas);
+        }
+        return atlas;
+    }
+
+    // Only called with the class lock held since PAINT is shared.
+    private static void drawShape(Canvas canvas, Shape shape, int color, int size) {
+        switch (shape) {
+            case CIRCLE:
+                drawCircle(canvas, color, size);
+                break;
+            case SQUARE:
+                drawSquare(canvas, color, size);
+                break;
+            case TRIANGLE:
+                drawTriangle(canvas, color, size);
+                break;
+        }
+    }
+
     public static Bitmap createCircleBitmap(int color, int size) {
         final Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
-        final Canvas canvas = new Canvas(bitmap);
+        drawCircle(new Canvas(bitmap), color, size);
+        return bitmap;
+    }
+
+    private static void drawCircle(Canvas canvas, int color, int size) {
         PAINT.setColor(color);
 
         final float radius = size / 2f;
         canvas.drawCircle(radius, radius, radius, PAINT);
-        return bitmap;
     }
 
     public static Bitmap createSquareBitmap(int color, int size) {
         final Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
-        final Canvas canvas = new Canvas(bitmap);
+        drawSquare(new Canvas(bitmap), color, size);
+        return bitmap;
+    }
+
+    private static void drawSquare(Canvas canvas, int color, int size) {
         PAINT.setColor(color);
 
         final Path path = new Path();
@@ -72,12 +207,15 @@ public class Utils {
         path.close();
 
         canvas.drawPath(path, PAINT);
-        return bitmap;
     }
 
     public static Bitmap createTriangleBitmap(int color, int size) {
         final Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
-        final Canvas canvas = new Canvas(bitmap);
+        drawTriangle(new Canvas(bitmap), color, size);
+        return bitmap;
+    }
+
+    private static void drawTriangle(Canvas canvas, int color, int size) {
         PAINT.setColor(color);
 
         // Generate equilateral triangle (http://mathworld.wolfram.com/EquilateralTriangle.html).
@@ -89,6 +227,32 @@ public class Utils {
         path.close();
 
         canvas.drawPath(path, PAINT);
-        return bitmap;
+    }
+
+    private static class AtlasKey {
+        final int[] colors;
+        final int size;
+        final Shape[] shapes;
+
+        AtlasKey(int[] colors, int size, Shape[] shapes) {
+            this.colors = colors;
+            this.size = size;
+            this.shapes = shapes;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof AtlasKey)) {
+                return false;
+            }
+            final AtlasKey other = (AtlasKey) o;
+            return size == other.size && Arrays.equals(colors, other.colors)
+                    && Arrays.equals(shapes, other.shapes);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * Arrays.hashCode(colors) + size) + Arrays.hashCode(shapes);
+        }
     }
 }
@@ -20,32 +20,90 @@ import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Matrix;
 import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
 
 public class BitmapParticles extends Particles {
+    private final Sprite sprite;
     private final Bitmap bitmap;
     private final float bitmapCenterX, bitmapCenterY;
+    // Maps the sprite region of the bitmap onto (0, 0), only used for sprites of an atlas
+    private final Rect spriteRegion, spriteBounds;
+    // Where an unrotated sprite of an atlas is drawn, set for each draw
+    private final RectF drawBounds;
 
     public BitmapParticles(Bitmap bitmap) {
-        this.bitmap = bitmap;
-        this.bitmapCenterX = bitmap.getWidth() / 2f;
-        this.bitmapCenterY = bitmap.getHeight() / 2f;
+        this(new Sprite(bitmap));
+    }
+
+    /**
+     * @param sprite the sprite to draw, e.g. from a {@link SpriteAtlas}.
+     */
+    public BitmapParticles(Sprite sprite) {
+        this.sprite = sprite;
+        this.bitmap = sprite.getBitmap();
+        this.bitmapCenterX = sprite.getWidth() / 2f;
+        this.bitmapCenterY = sprite.getHeight() / 2f;
+        if (sprite.isWholeBitmap()) {
+            this.spriteRegion = this.spriteBounds = null;
+            this.drawBounds = null;
+        } else {
+            this.spriteRegion = sprite.getRegion();
+            this.spriteBounds = new Rect(0, 0, sprite.getWidth(), sprite.getHeight());
+            this.drawBounds = new RectF();
+        }
     }
 
     @Override
     public int getWidth() {
-        return bitmap.getWidth();
+        return sprite.getWidth();
     }
 
     @Override
     public int getHeight() {
-        return bitmap.getHeight();
+        return sprite.getHeight();
+    }
+
+    @Override
+    protected void configurePaint(Paint paint) {
+        super.configurePaint(paint);
+        // Fills masks, the alpha is applied afterwards.
+        paint.setColor(sprite.getColor());
+    }
+
+    /**
+     * Subclasses that change how the bitmap is drawn should return null so that they are not
+     * batched.
+     */
+    @Override
+    protected Sprite getSprite() {
+        return sprite;
+    }
+
+    @Override
+    protected int getPointColor() {
+        return sprite.getAverageColor();
     }
 
     @Override
     protected void drawInternal(Canvas canvas, Matrix matrix, Paint paint, float x, float y,
             float rotation, float percentageAnimated) {
+        if (spriteRegion != null && rotation % 360f == 0) {
+            // An unrotated sprite of an atlas is only moved, so it needs no canvas save.
+            drawBounds.set(x, y, x + spriteBounds.right, y + spriteBounds.bottom);
+            canvas.drawBitmap(bitmap, spriteRegion, drawBounds, paint);
+            return;
+        }
+
         matrix.preTranslate(x, y);
         matrix.preRotate(rotation, bitmapCenterX, bitmapCenterY);
-        canvas.drawBitmap(bitmap, matrix, paint);
+        if (spriteRegion == null) {
+            canvas.drawBitmap(bitmap, matrix, paint);
+        } else {
+            canvas.save();
+            canvas.concat(matrix);
+            canvas.drawBitmap(bitmap, spriteRegion, spriteBounds, paint);
+            canvas.restore();
+        }
     }
 }
\ No newline at end of file
@@ -17,6 +17,7 @@
 package com.tutorials.android.particles.particles;
 
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Matrix;
 import android.graphics.Paint;
 
@@ -47,10 +48,33 @@ public class CircleParticles extends Particles {
     @Override
     protected void configurePaint(Paint paint) {
         super.configurePaint(paint);
-        paint.setStyle(Paint.Style.FILL);
         paint.setColor(color);
     }
 
+    /**
+     * Hook for the frame renderers, which draw every circle sharing a color, alpha and radius
+     * with a single {@link Canvas#drawPoints} call instead of one {@link #drawInternal} call each.
+     * Subclasses are drawn on their own unless they override this to opt in.
+     *
+     * @return whether this circle can be drawn as a round point of its color and radius.
+     */
+    protected boolean canDrawAsPoint() {
+        return getClass() == CircleParticles.class;
+    }
+
+    int getColor() {
+        return color;
+    }
+
+    float getRadius() {
+        return radius;
+    }
+
+    @Override
+    protected int getPointColor() {
+        return canDrawAsPoint() ? color | 0xFF000000 : Color.TRANSPARENT;
+    }
+
     @Override
     protected void drawInternal(Canvas canvas, Matrix matrix, Paint paint, float x, float y,
             float rotation, float percentageAnimated) {
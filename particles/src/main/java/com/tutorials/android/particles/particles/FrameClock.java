@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2021 TutorialsAndroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tutorials.android.particles.particles;
+
+import android.os.SystemClock;
+
+/**
+ * A source of time for the particles animations. Reading the time from a clock rather than from
+ * the system lets animations be driven deterministically, e.g. by a {@link Manual} clock in tests,
+ * or faster than real time.
+ */
+public interface FrameClock {
+    /**
+     * The monotonic system clock.
+     */
+    FrameClock SYSTEM = SystemClock::elapsedRealtime;
+
+    /**
+     * @return the current time in milliseconds, which must never decrease.
+     */
+    long currentTimeMillis();
+
+    /**
+     * A clock that only moves when told to.
+     */
+    class Manual implements FrameClock {
+        private long timeMillis;
+
+        public Manual() {
+        }
+
+        public Manual(long timeMillis) {
+            this.timeMillis = timeMillis;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return timeMillis;
+        }
+
+        public void setTimeMillis(long timeMillis) {
+            this.timeMillis = timeMillis;
+        }
+
+        public void advance(long deltaMillis) {
+            this.timeMillis += deltaMillis;
+        }
+    }
+}
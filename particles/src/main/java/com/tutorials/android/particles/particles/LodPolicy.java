@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2021 TutorialsAndroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tutorials.android.particles.particles;
+
+import android.graphics.Color;
+
+/**
+ * Decides how much detail each particles is drawn with. Particles that have faded out below
+ * {@link #setMinAlpha(int) the minimum alpha} are skipped, and particles that end up smaller than
+ * {@link #setPointSize(float) the point size} on screen are drawn as a round point of their
+ * {@link Particles#getPointColor() point color}, in batches, rather than with their full draw
+ * call. Everything else is drawn as usual.
+ * <p>
+ * The policy also counts how many particles were drawn at each level of detail during the last
+ * frame.
+ */
+public class LodPolicy {
+    public static final int DEFAULT_MIN_ALPHA = 8;
+    public static final float DEFAULT_POINT_SIZE = 2f;
+
+    static final int FULL = 0;
+    static final int POINT = 1;
+    static final int SKIPPED = 2;
+
+    private int minAlpha = DEFAULT_MIN_ALPHA;
+    private float pointSize = DEFAULT_POINT_SIZE;
+
+    // The current frame's scale and the largest particles size that is drawn as a point at it
+    private float scale = 1f;
+    private float maxPointSize = DEFAULT_POINT_SIZE;
+
+    private int fullCount, pointCount, skippedCount;
+
+    /**
+     * @param minAlpha the alpha, [0, 255], below which particles are not drawn at all. 0 to draw
+     *   every particles however faded.
+     * @return the policy so that the set calls can be chained.
+     */
+    public LodPolicy setMinAlpha(int minAlpha) {
+        this.minAlpha = minAlpha;
+        return this;
+    }
+
+    /**
+     * @param pointSize the on-screen size in pixels below which particles are drawn as points. 0
+     *   to never draw particles as points.
+     * @return the policy so that the set calls can be chained.
+     */
+    public LodPolicy setPointSize(float pointSize) {
+        this.pointSize = pointSize;
+        this.maxPointSize = pointSize / scale;
+        return this;
+    }
+
+    public int getMinAlpha() {
+        return minAlpha;
+    }
+
+    public float getPointSize() {
+        return pointSize;
+    }
+
+    /**
+     * Start counting a new frame. Called by the view before every frame it draws.
+     *
+     * @param scale how much the frame is scaled on screen, e.g. by the scale of the view.
+     */
+    public void beginFrame(float scale) {
+        fullCount = pointCount = skippedCount = 0;
+        this.scale = scale > 0 ? scale : 1f;
+        this.maxPointSize = pointSize / this.scale;
+    }
+
+    /**
+     * @return the number of particles drawn as usual during the last frame.
+     */
+    public int getFullCount() {
+        return fullCount;
+    }
+
+    /**
+     * @return the number of particles drawn as points during the last frame.
+     */
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    /**
+     * @return the number of particles skipped during the last frame.
+     */
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * @param particles the particles about to be drawn.
+     * @param alpha its current alpha.
+     * @return the level of detail to draw it with: {@link #FULL}, {@link #POINT} or
+     *   {@link #SKIPPED}.
+     */
+    int select(Particles particles, int alpha) {
+        if (alpha < minAlpha) {
+            skippedCount++;
+            return SKIPPED;
+        }
+        if (particles.getWidth() < maxPointSize && particles.getHeight() < maxPointSize
+                && Color.alpha(particles.getPointColor()) != 0) {
+            pointCount++;
+            return POINT;
+        }
+        fullCount++;
+        return FULL;
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2021 TutorialsAndroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tutorials.android.particles.particles;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Steps a {@link ParticleStore} across several threads for very large particle counts. The live
+ * range is split into contiguous chunks; the calling thread updates the first chunk itself while
+ * the remaining chunks run on the executor, and {@link #update(ParticleStore, long)} only returns
+ * once every chunk is done. Every particles is advanced by exactly the same code as
+ * {@link ParticleStore#update(long)}, so the results are identical to the serial path.
+ * <p>
+ * Below {@link #getThreshold()} live particles the store is simply updated on the calling thread.
+ * Any fade out interpolator in use must be safe to call from multiple threads.
+ */
+public class ParallelStepper {
+    public static final int DEFAULT_THRESHOLD = 4096;
+    public static final int DEFAULT_MIN_CHUNK_SIZE = 1024;
+
+    private static ExecutorService sharedExecutor;
+
+    private final Executor executor;
+    private final Chunk[] chunks;
+    private int threshold = DEFAULT_THRESHOLD;
+    private int minChunkSize = DEFAULT_MIN_CHUNK_SIZE;
+
+    // Join state for the chunks currently running on the executor
+    private final Object lock = new Object();
+    private int pendingChunks;
+    private Throwable failure;
+
+    /**
+     * Creates a stepper that runs on a process-wide pool with one thread per additional core.
+     */
+    public ParallelStepper() {
+        this(getSharedExecutor(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param executor the executor to run the chunks on.
+     * @param parallelism the maximum number of chunks, including the one run by the caller.
+     */
+    public ParallelStepper(Executor executor, int parallelism) {
+        this.executor = executor;
+        this.chunks = new Chunk[Math.max(1, parallelism)];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = new Chunk();
+        }
+    }
+
+    private static synchronized ExecutorService getSharedExecutor() {
+        if (sharedExecutor == null) {
+            final int numThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            sharedExecutor = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+                private int count;
+
+                @Override
+                public synchronized Thread newThread(Runnable r) {
+                    final Thread thread = new Thread(r, "ParticlesStepper-" + count++);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sharedExecutor;
+    }
+
+    /**
+     * @param threshold the live particles count below which the store is updated serially.
+     */
+    public void setThreshold(int threshold) {
+        this.threshold = threshold;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @param minChunkSize the smallest number of particles worth handing to another thread.
+     */
+    public void setMinChunkSize(int minChunkSize) {
+        this.minChunkSize = Math.max(1, minChunkSize);
+    }
+
+    public int getMinChunkSize() {
+        return minChunkSize;
+    }
+
+    /**
+     * @see ParticleStore#update(long)
+     *
+     * @param store the store to update.
+     * @param passedTime time since the beginning of the animation.
+     */
+    public void update(ParticleStore store, long passedTime) {
+        store.activatePending(passedTime);
+        final int size = store.liveSize();
+        final int numChunks = Math.min(chunks.length, size / minChunkSize);
+        if (size < threshold || numChunks < 2) {
+            store.update(passedTime, 0, size);
+            return;
+        }
+
+        final int chunkSize = (size + numChunks - 1) / numChunks;
+        synchronized (lock) {
+            pendingChunks = numChunks - 1;
+            failure = null;
+        }
+        for (int i = 1; i < numChunks; i++) {
+            final Chunk chunk = chunks[i];
+            chunk.set(store, passedTime, Math.min(size, i * chunkSize),
+                    Math.min(size, (i + 1) * chunkSize));
+            try {
+                executor.execute(chunk);
+            } catch (RejectedExecutionException e) {
+                chunk.run();
+            }
+        }
+
+        store.update(passedTime, 0, chunkSize);
+        awaitChunks();
+        for (int i = 1; i < numChunks; i++) {
+            chunks[i].store = null;
+        }
+    }
+
+    private void awaitChunks() {
+        boolean interrupted = false;
+        synchronized (lock) {
+            while (pendingChunks > 0) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    // The chunks still write into the store, so we must wait for them regardless.
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw new RuntimeException("Failed to update particles", failure);
+        }
+    }
+
+    private void onChunkDone(Throwable t) {
+        synchronized (lock) {
+            if (t != null && failure == null) {
+                failure = t;
+            }
+            if (--pendingChunks == 0) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private class Chunk implements Runnable {
+        private ParticleStore store;
+        private long passedTime;
+        private int from, to;
+
+        void set(ParticleStore store, long passedTime, int from, int to) {
+            this.store = store;
+            this.passedTime = passedTime;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public void run() {
+            Throwable error = null;
+            try {
+                store.update(passedTime, from, to);
+            } catch (Throwable t) {
+                error = t;
+            }
+            onChunkDone(error);
+        }
+    }
+}
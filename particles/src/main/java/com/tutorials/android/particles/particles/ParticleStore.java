@@ -0,0 +1,868 @@
+/*
+ * Copyright (C) 2021 TutorialsAndroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tutorials.android.particles.particles;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.view.animation.Interpolator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Structure-of-arrays storage for the simulation state of a group of particles. Every live
+ * {@link Particles} is a lightweight handle onto one index of this store, while the actual
+ * coordinate, rotation and animation states live in parallel primitive columns so that the
+ * update and draw loops walk contiguous memory. The draw states are kept in a
+ * {@link ParticlesFrame} that is updated in place.
+ * <p>
+ * Particles whose initial delay is still in the future are pending: they are kept past the end of
+ * the live range, ordered by start time in a queue, and are neither updated nor drawn until
+ * {@link #activatePending(long)} moves them into the live range. The live range is
+ * [0, {@link #liveSize()}) and the pending range is [{@link #liveSize()}, {@link #size()}).
+ * <p>
+ * All of the configured states are in milliseconds, e.g. pixels per millisecond for velocity.
+ * A target velocity that is not set is stored as {@link Float#NaN} and the time to reach it as
+ * {@link #NO_TARGET}.
+ */
+public class ParticleStore implements ParticlesFrame.Source {
+    static final int MAX_ALPHA = 255;
+    static final long RESET_ANIMATION_INITIAL_DELAY = -1;
+    static final long NO_TARGET = Long.MAX_VALUE;
+
+    private static final int DEFAULT_CAPACITY = 300;
+
+    private final ParticlesFrame frame;
+
+    private int size;
+    private int liveSize;
+    private boolean stableOrder;
+    Particles[] particles;
+
+    // Configured coordinate states
+    Rect[] bound;
+    long[] initialDelay;
+    float[] initialX, initialY, initialVelocityX, initialVelocityY, accelerationX, accelerationY;
+    float[] targetVelocityX, targetVelocityY;
+    long[] millisToReachTargetVelocityX, millisToReachTargetVelocityY;
+    float[] cruiseVelocityX, cruiseVelocityY;
+    // Configured rotation states
+    float[] initialRotation, initialRotationalVelocity, rotationalAcceleration;
+    float[] targetRotationalVelocity;
+    long[] millisToReachTargetRotationalVelocity;
+    float[] cruiseRotationalVelocity;
+    // Configured animation states
+    long[] ttl;
+    Interpolator[] fadeOutInterpolator;
+    float[] millisToReachBound;
+    float[] percentageAnimated;
+    // Current draw states, these alias the columns of the frame
+    float[] currentX, currentY, currentRotation;
+    float[] currentVelocityX, currentVelocityY, currentRotationalVelocity;
+    int[] alpha;
+    boolean[] visible;
+    // Current simulation states
+    boolean[] startedAnimation, terminated, touchOverride;
+
+    // Live particles scheduled by the absolute time they expire at, and the ones that cannot be
+    // scheduled until their initial delay is resolved by the next update.
+    private final TimeQueue expiryQueue = new TimeQueue();
+    private final List<Particles> unscheduled = new ArrayList<>();
+    // Pending particles scheduled by the absolute time they start at
+    private final TimeQueue pendingQueue = new TimeQueue();
+    // The latest passed time the pending particles were activated for
+    private long currentTime;
+
+    // Scratch column for the batch update, not part of the particles state
+    private float[] animatedTime;
+    // Whether any particles prepared since the store was last emptied has a reachable target
+    private boolean hasTargetX, hasTargetY, hasTargetRotation;
+
+    public ParticleStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ParticleStore(int initialCapacity) {
+        frame = new ParticlesFrame(Math.max(1, initialCapacity));
+        allocate(Math.max(1, initialCapacity));
+    }
+
+    private void allocate(int capacity) {
+        frame.ensureCapacity(capacity);
+        particles = frame.particles;
+        bound = frame.bound;
+        currentX = frame.x;
+        currentY = frame.y;
+        currentRotation = frame.rotation;
+        currentVelocityX = frame.velocityX;
+        currentVelocityY = frame.velocityY;
+        currentRotationalVelocity = frame.rotationalVelocity;
+        percentageAnimated = frame.percentageAnimated;
+        alpha = frame.alpha;
+        visible = frame.visible;
+
+        initialDelay = grow(initialDelay, capacity);
+        initialX = grow(initialX, capacity);
+        initialY = grow(initialY, capacity);
+        initialVelocityX = grow(initialVelocityX, capacity);
+        initialVelocityY = grow(initialVelocityY, capacity);
+        accelerationX = grow(accelerationX, capacity);
+        accelerationY = grow(accelerationY, capacity);
+        targetVelocityX = grow(targetVelocityX, capacity);
+        targetVelocityY = grow(targetVelocityY, capacity);
+        millisToReachTargetVelocityX = grow(millisToReachTargetVelocityX, capacity);
+        millisToReachTargetVelocityY = grow(millisToReachTargetVelocityY, capacity);
+        cruiseVelocityX = grow(cruiseVelocityX, capacity);
+        cruiseVelocityY = grow(cruiseVelocityY, capacity);
+        initialRotation = grow(initialRotation, capacity);
+        initialRotationalVelocity = grow(initialRotationalVelocity, capacity);
+        rotationalAcceleration = grow(rotationalAcceleration, capacity);
+        targetRotationalVelocity = grow(targetRotationalVelocity, capacity);
+        millisToReachTargetRotationalVelocity =
+                grow(millisToReachTargetRotationalVelocity, capacity);
+        cruiseRotationalVelocity = grow(cruiseRotationalVelocity, capacity);
+        ttl = grow(ttl, capacity);
+        fadeOutInterpolator = fadeOutInterpolator == null ? new Interpolator[capacity]
+                : Arrays.copyOf(fadeOutInterpolator, capacity);
+        millisToReachBound = grow(millisToReachBound, capacity);
+        startedAnimation = grow(startedAnimation, capacity);
+        terminated = grow(terminated, capacity);
+        touchOverride = grow(touchOverride, capacity);
+        animatedTime = new float[capacity];
+    }
+
+    private static float[] grow(float[] column, int capacity) {
+        return column == null ? new float[capacity] : Arrays.copyOf(column, capacity);
+    }
+
+    private static long[] grow(long[] column, int capacity) {
+        return column == null ? new long[capacity] : Arrays.copyOf(column, capacity);
+    }
+
+    private static boolean[] grow(boolean[] column, int capacity) {
+        return column == null ? new boolean[capacity] : Arrays.copyOf(column, capacity);
+    }
+
+    /**
+     * @return the number of particles currently held by this store, pending ones included.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of particles that have started, i.e. the ones that get updated and drawn.
+     */
+    public int liveSize() {
+        return liveSize;
+    }
+
+    /**
+     * @return the number of particles waiting for their initial delay to pass.
+     */
+    public int pendingSize() {
+        return size - liveSize;
+    }
+
+    private void setLiveSize(int liveSize) {
+        this.liveSize = liveSize;
+        frame.size = liveSize;
+    }
+
+    /**
+     * @return the number of particles this store can hold before growing its columns.
+     */
+    public int capacity() {
+        return particles.length;
+    }
+
+    /**
+     * Append the provided particles to the end of this store and bind it to its new index. The
+     * particles's state is reset to the defaults and it stays out of the live range until it is
+     * {@link #prepare(int, Rect) prepared}.
+     *
+     * @param particles the particles handle to attach.
+     * @return the index that the particles now occupies.
+     */
+    public int add(Particles particles) {
+        if (size == capacity()) {
+            allocate(capacity() * 2);
+        }
+
+        final int index = size++;
+        this.particles[index] = particles;
+        particles.attach(this, index);
+        reset(index);
+        return index;
+    }
+
+    /**
+     * @param stableOrder whether removals should preserve the relative (draw) order of the
+     *   remaining particles. By default the last particles is swapped into the removed index,
+     *   which is O(1) per removal; a stable removal shifts the tail down instead.
+     */
+    public void setStableOrder(boolean stableOrder) {
+        this.stableOrder = stableOrder;
+    }
+
+    public boolean isStableOrder() {
+        return stableOrder;
+    }
+
+    /**
+     * Remove the particles at the provided index. Unless {@link #setStableOrder(boolean)} is
+     * enabled, the last live particles takes over a removed live index. The order of the pending
+     * particles is never preserved.
+     *
+     * @param index the index to remove.
+     * @return the particles handle that was removed, now detached from this store.
+     */
+    public Particles remove(int index) {
+        final Particles removed = particles[index];
+        if (index < liveSize) {
+            final int lastLive = liveSize - 1;
+            if (stableOrder) {
+                for (int i = index; i < lastLive; i++) {
+                    move(i + 1, i);
+                }
+            } else if (index != lastLive) {
+                move(lastLive, index);
+            }
+            setLiveSize(lastLive);
+            // The hole is now the first pending index.
+            index = lastLive;
+        }
+
+        final int last = size - 1;
+        if (index != last) {
+            move(last, index);
+        }
+        detach(removed);
+        truncate(last);
+        return removed;
+    }
+
+    /**
+     * Remove every live particles flagged as terminated in a single linear pass, regardless of
+     * how many of them terminated.
+     *
+     * @param listener notified of each removed particles before it is detached from this store.
+     * @return the number of particles removed.
+     */
+    public int removeTerminated(OnRemoveListener listener) {
+        final int oldSize = size;
+        if (stableOrder) {
+            // Compact the survivors towards the front, preserving their order.
+            int write = 0;
+            for (int read = 0; read < liveSize; read++) {
+                if (terminated[read]) {
+                    final Particles removed = particles[read];
+                    listener.onRemove(removed);
+                    detach(removed);
+                } else {
+                    if (write != read) {
+                        move(read, write);
+                    }
+                    write++;
+                }
+            }
+            shrinkLiveRange(write);
+        } else {
+            int i = 0;
+            int end = liveSize;
+            while (i < end) {
+                if (terminated[i]) {
+                    final Particles removed = particles[i];
+                    listener.onRemove(removed);
+                    detach(removed);
+                    end--;
+                    if (i != end) {
+                        // Re-check index i on the next iteration as it now holds the last one.
+                        move(end, i);
+                    }
+                } else {
+                    i++;
+                }
+            }
+            shrinkLiveRange(end);
+        }
+        return oldSize - size;
+    }
+
+    /**
+     * Remove all of the particles from this store.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            particles[i].detach();
+        }
+        expiryQueue.clear();
+        unscheduled.clear();
+        pendingQueue.clear();
+        setLiveSize(0);
+        truncate(0);
+    }
+
+    private void detach(Particles particles) {
+        expiryQueue.unschedule(particles);
+        pendingQueue.unschedule(particles);
+        if (!unscheduled.isEmpty()) {
+            unscheduled.remove(particles);
+        }
+        particles.detach();
+    }
+
+    // Closes the gap left in [newLiveSize, liveSize) by removed live particles with the last
+    // pending ones, whose order does not matter, and drops the now unused tail.
+    private void shrinkLiveRange(int newLiveSize) {
+        final int gap = liveSize - newLiveSize;
+        final int numMoves = Math.min(gap, size - liveSize);
+        for (int k = 0; k < numMoves; k++) {
+            move(size - 1 - k, newLiveSize + k);
+        }
+        setLiveSize(newLiveSize);
+        truncate(size - gap);
+    }
+
+    // Drops the references held by every index at or past newSize.
+    private void truncate(int newSize) {
+        for (int i = newSize; i < size; i++) {
+            particles[i] = null;
+            bound[i] = null;
+            fadeOutInterpolator[i] = null;
+        }
+        size = newSize;
+        if (size == 0) {
+            hasTargetX = hasTargetY = hasTargetRotation = false;
+            // The next particles start a new animation, whose time starts over.
+            currentTime = 0;
+        }
+    }
+
+    /**
+     * Copy every column of {@code from} into {@code to} and re-bind the handle to its new index.
+     */
+    void move(int from, int to) {
+        particles[to] = particles[from];
+        particles[to].attach(this, to);
+        bound[to] = bound[from];
+        initialDelay[to] = initialDelay[from];
+        initialX[to] = initialX[from];
+        initialY[to] = initialY[from];
+        initialVelocityX[to] = initialVelocityX[from];
+        initialVelocityY[to] = initialVelocityY[from];
+        accelerationX[to] = accelerationX[from];
+        accelerationY[to] = accelerationY[from];
+        targetVelocityX[to] = targetVelocityX[from];
+        targetVelocityY[to] = targetVelocityY[from];
+        millisToReachTargetVelocityX[to] = millisToReachTargetVelocityX[from];
+        millisToReachTargetVelocityY[to] = millisToReachTargetVelocityY[from];
+        cruiseVelocityX[to] = cruiseVelocityX[from];
+        cruiseVelocityY[to] = cruiseVelocityY[from];
+        initialRotation[to] = initialRotation[from];
+        initialRotationalVelocity[to] = initialRotationalVelocity[from];
+        rotationalAcceleration[to] = rotationalAcceleration[from];
+        targetRotationalVelocity[to] = targetRotationalVelocity[from];
+        millisToReachTargetRotationalVelocity[to] = millisToReachTargetRotationalVelocity[from];
+        cruiseRotationalVelocity[to] = cruiseRotationalVelocity[from];
+        ttl[to] = ttl[from];
+        fadeOutInterpolator[to] = fadeOutInterpolator[from];
+        millisToReachBound[to] = millisToReachBound[from];
+        percentageAnimated[to] = percentageAnimated[from];
+        currentX[to] = currentX[from];
+        currentY[to] = currentY[from];
+        currentRotation[to] = currentRotation[from];
+        currentVelocityX[to] = currentVelocityX[from];
+        currentVelocityY[to] = currentVelocityY[from];
+        currentRotationalVelocity[to] = currentRotationalVelocity[from];
+        alpha[to] = alpha[from];
+        visible[to] = visible[from];
+        startedAnimation[to] = startedAnimation[from];
+        terminated[to] = terminated[from];
+        touchOverride[to] = touchOverride[from];
+    }
+
+    // Swaps every column of the two indices, using the index past the end as scratch space.
+    private void swap(int a, int b) {
+        if (size == capacity()) {
+            allocate(capacity() * 2);
+        }
+        final int scratch = size;
+        move(a, scratch);
+        move(b, a);
+        move(scratch, b);
+        particles[scratch] = null;
+        bound[scratch] = null;
+        fadeOutInterpolator[scratch] = null;
+    }
+
+    /**
+     * Reset the states at the provided index so that it can be re-used.
+     *
+     * @param i the index to reset.
+     */
+    public void reset(int i) {
+        initialDelay[i] = 0;
+        initialX[i] = initialY[i] = 0f;
+        initialVelocityX[i] = initialVelocityY[i] = 0f;
+        accelerationX[i] = accelerationY[i] = 0f;
+        targetVelocityX[i] = targetVelocityY[i] = Float.NaN;
+        millisToReachTargetVelocityX[i] = millisToReachTargetVelocityY[i] = NO_TARGET;
+        cruiseVelocityX[i] = cruiseVelocityY[i] = 0f;
+
+        initialRotation[i] = 0f;
+        initialRotationalVelocity[i] = 0f;
+        rotationalAcceleration[i] = 0f;
+        targetRotationalVelocity[i] = Float.NaN;
+        millisToReachTargetRotationalVelocity[i] = NO_TARGET;
+        cruiseRotationalVelocity[i] = 0f;
+
+        ttl[i] = 0;
+        millisToReachBound[i] = 0f;
+        percentageAnimated[i] = 0f;
+        fadeOutInterpolator[i] = null;
+
+        currentX[i] = currentY[i] = 0f;
+        currentVelocityX[i] = currentVelocityY[i] = 0f;
+        currentRotation[i] = 0f;
+        currentRotationalVelocity[i] = 0f;
+        alpha[i] = MAX_ALPHA;
+        visible[i] = false;
+        startedAnimation[i] = false;
+        terminated[i] = false;
+        touchOverride[i] = false;
+    }
+
+    /**
+     * Precompute the target and bound timings for the particles at the provided index. This
+     * should be called after all of its state variables are configured and before it gets animated.
+     * Depending on whether its initial delay has passed, the particles is then moved into the live
+     * range or queued as pending, so it may end up at a different index.
+     *
+     * @param i the index to prepare.
+     * @param bound the space in which the particles can display in.
+     */
+    public void prepare(int i, Rect bound) {
+        this.bound[i] = bound;
+
+        millisToReachTargetVelocityX[i] = toTargetTime(Particles.computeMillisToReachTarget(
+                toTarget(targetVelocityX[i]), initialVelocityX[i], accelerationX[i]));
+        millisToReachTargetVelocityY[i] = toTargetTime(Particles.computeMillisToReachTarget(
+                toTarget(targetVelocityY[i]), initialVelocityY[i], accelerationY[i]));
+        millisToReachTargetRotationalVelocity[i] = toTargetTime(
+                Particles.computeMillisToReachTarget(toTarget(targetRotationalVelocity[i]),
+                        initialRotationalVelocity[i], rotationalAcceleration[i]));
+
+        // The velocity to continue with once the target is reached. It is only ever multiplied by
+        // the time spent past the target, which is always 0 when there is no target to reach.
+        cruiseVelocityX[i] = cruiseVelocity(targetVelocityX[i], millisToReachTargetVelocityX[i]);
+        cruiseVelocityY[i] = cruiseVelocity(targetVelocityY[i], millisToReachTargetVelocityY[i]);
+        cruiseRotationalVelocity[i] = cruiseVelocity(targetRotationalVelocity[i],
+                millisToReachTargetRotationalVelocity[i]);
+        hasTargetX |= millisToReachTargetVelocityX[i] != NO_TARGET;
+        hasTargetY |= millisToReachTargetVelocityY[i] != NO_TARGET;
+        hasTargetRotation |= millisToReachTargetRotationalVelocity[i] != NO_TARGET;
+
+        // Compute how long it would take to reach x/y bounds or reach TTL.
+        final Particles p = particles[i];
+        float millisToReachBound = ttl[i] >= 0 ? ttl[i] : Long.MAX_VALUE;
+        final long timeToReachXBound = Particles.computeBound(initialX[i], initialVelocityX[i],
+                accelerationX[i], toTargetTime(millisToReachTargetVelocityX[i]),
+                toTarget(targetVelocityX[i]), bound.left - p.getWidth(), bound.right);
+        millisToReachBound = Math.min(timeToReachXBound, millisToReachBound);
+        final long timeToReachYBound = Particles.computeBound(initialY[i], initialVelocityY[i],
+                accelerationY[i], toTargetTime(millisToReachTargetVelocityY[i]),
+                toTarget(targetVelocityY[i]), bound.top - p.getHeight(), bound.bottom);
+        this.millisToReachBound[i] = Math.min(timeToReachYBound, millisToReachBound);
+
+        if (initialDelay[i] != RESET_ANIMATION_INITIAL_DELAY && initialDelay[i] > currentTime) {
+            if (!unscheduled.isEmpty()) {
+                unscheduled.remove(p);
+            }
+            if (i < liveSize) {
+                deactivate(i);
+            }
+            pendingQueue.schedule(p, initialDelay[p.getIndex()]);
+        } else {
+            if (i >= liveSize) {
+                i = activate(i);
+            }
+            schedule(p, i);
+        }
+    }
+
+    /**
+     * Move every pending particles whose initial delay has been reached by the provided passed
+     * time into the live range, in order of their start time. This is called by
+     * {@link #update(long)}; it only needs to be called directly to make sure that particles
+     * prepared for the current time go live right away rather than on the next update.
+     *
+     * @param passedTime time since the beginning of the animation.
+     */
+    public void activatePending(long passedTime) {
+        currentTime = passedTime;
+        while (pendingQueue.peekTime() <= passedTime) {
+            final Particles p = pendingQueue.poll();
+            schedule(p, activate(p.getIndex()));
+        }
+    }
+
+    // Moves the pending particles at index i to the end of the live range.
+    private int activate(int i) {
+        final int index = liveSize;
+        if (i != index) {
+            swap(i, index);
+        }
+        setLiveSize(index + 1);
+        return index;
+    }
+
+    // Moves the live particles at index i to the start of the pending range.
+    private void deactivate(int i) {
+        final int lastLive = liveSize - 1;
+        if (stableOrder) {
+            for (int k = i; k < lastLive; k++) {
+                swap(k, k + 1);
+            }
+        } else if (i != lastLive) {
+            swap(i, lastLive);
+        }
+        setLiveSize(lastLive);
+    }
+
+    private void schedule(Particles p, int i) {
+        if (initialDelay[i] == RESET_ANIMATION_INITIAL_DELAY) {
+            expiryQueue.unschedule(p);
+            if (!unscheduled.contains(p)) {
+                unscheduled.add(p);
+            }
+            return;
+        }
+
+        // The particles terminates on the first update where animatedTime >= millisToReachBound.
+        final double millisToReachBound = Math.ceil(this.millisToReachBound[i]);
+        if (millisToReachBound < Long.MAX_VALUE - initialDelay[i]) {
+            expiryQueue.schedule(p, initialDelay[i] + (long) millisToReachBound);
+        } else {
+            // Never reaches its bound on its own.
+            expiryQueue.unschedule(p);
+        }
+    }
+
+    /**
+     * Terminate and remove every particles whose time to live or bound has been reached by the
+     * provided passed time. Expirations are precomputed by {@link #prepare(int, Rect)}, so this
+     * only costs work proportional to the number of particles that expire rather than to the
+     * number of live particles. Particles that are being dragged are left alone until they are
+     * released and rescheduled.
+     *
+     * @param passedTime time since the beginning of the animation.
+     * @param listener notified of each removed particles before it is detached from this store.
+     * @return the number of particles removed.
+     */
+    public int removeExpired(long passedTime, OnRemoveListener listener) {
+        for (int k = unscheduled.size() - 1; k >= 0; k--) {
+            final Particles p = unscheduled.get(k);
+            if (initialDelay[p.getIndex()] != RESET_ANIMATION_INITIAL_DELAY) {
+                unscheduled.remove(k);
+                schedule(p, p.getIndex());
+            }
+        }
+
+        int numExpired = 0;
+        while (expiryQueue.peekTime() <= passedTime) {
+            final Particles p = expiryQueue.poll();
+            final int i = p.getIndex();
+            if (touchOverride[i]) {
+                continue;
+            }
+
+            terminated[i] = true;
+            visible[i] = false;
+            numExpired++;
+            if (!stableOrder) {
+                listener.onRemove(p);
+                remove(i);
+            }
+        }
+
+        if (stableOrder && numExpired > 0) {
+            // A single order-preserving compaction rather than one shift per expired particles.
+            removeTerminated(listener);
+        }
+        return numExpired;
+    }
+
+    private static float cruiseVelocity(float target, long targetTime) {
+        return targetTime == NO_TARGET ? 0f : target;
+    }
+
+    private static Float toTarget(float target) {
+        return Float.isNaN(target) ? null : target;
+    }
+
+    private static long toTargetTime(Long targetTime) {
+        return targetTime == null ? NO_TARGET : targetTime;
+    }
+
+    private static Long toTargetTime(long targetTime) {
+        return targetTime == NO_TARGET ? null : targetTime;
+    }
+
+    /**
+     * Update the internal state of the particles at the provided index based on the provided
+     * passed time.
+     *
+     * @param i the index to update.
+     * @param passedTime time since the beginning of the animation.
+     * @return whether this particular particles is still animating.
+     */
+    public boolean applyUpdate(int i, long passedTime) {
+        if (initialDelay[i] == RESET_ANIMATION_INITIAL_DELAY) {
+            initialDelay[i] = passedTime;
+        }
+
+        final long animatedTime = passedTime - initialDelay[i];
+        startedAnimation[i] = animatedTime >= 0;
+
+        if (startedAnimation[i] && !terminated[i]) {
+            currentX[i] = computeDistance(animatedTime, initialX[i], initialVelocityX[i],
+                    accelerationX[i], millisToReachTargetVelocityX[i], cruiseVelocityX[i]);
+            currentVelocityX[i] = accelerationX[i] * animatedTime + initialVelocityX[i];
+
+            currentY[i] = computeDistance(animatedTime, initialY[i], initialVelocityY[i],
+                    accelerationY[i], millisToReachTargetVelocityY[i], cruiseVelocityY[i]);
+            currentVelocityY[i] = accelerationY[i] * animatedTime + initialVelocityY[i];
+
+            currentRotation[i] = computeDistance(animatedTime, initialRotation[i],
+                    initialRotationalVelocity[i], rotationalAcceleration[i],
+                    millisToReachTargetRotationalVelocity[i], cruiseRotationalVelocity[i]);
+            currentRotationalVelocity[i] =
+                    rotationalAcceleration[i] * animatedTime + initialRotationalVelocity[i];
+
+            final Interpolator fadeOut = fadeOutInterpolator[i];
+            if (fadeOut != null) {
+                final float interpolatedTime =
+                        fadeOut.getInterpolation(animatedTime / millisToReachBound[i]);
+                alpha[i] = (int) (interpolatedTime * MAX_ALPHA);
+            } else {
+                alpha[i] = MAX_ALPHA;
+            }
+
+            terminated[i] = !touchOverride[i] && animatedTime >= millisToReachBound[i];
+            percentageAnimated[i] = Math.min(1f, animatedTime / millisToReachBound[i]);
+        }
+
+        if (touchOverride[i]) {
+            particles[i].applyTouchOverride();
+        }
+        visible[i] = touchOverride[i] || (startedAnimation[i] && !terminated[i]);
+        return !terminated[i];
+    }
+
+    private static float computeDistance(long t, float xi, float vi, float ai, long targetTime,
+                                         float vTarget) {
+        if (t < targetTime) {
+            // distance covered with constant acceleration
+            // distance = xi + vi * t + 1/2 * a * t^2
+            return xi + vi * t + 0.5f * ai * t * t;
+        } else {
+            // distance covered with constant acceleration + distance covered with max velocity
+            // distance = xi + vi * targetTime + 1/2 * a * targetTime^2
+            //     + (t - targetTime) * vTarget;
+            return xi + vi * targetTime + 0.5f * ai * targetTime * targetTime
+                    + (t - targetTime) * vTarget;
+        }
+    }
+
+    /**
+     * Activate the pending particles that are due, then update the internal state of every live
+     * particles in this store based on the provided passed time. This is the batch equivalent of
+     * calling {@link #applyUpdate(int, long)} for every live index: each state is advanced column
+     * by column in tight loops over the primitive arrays so that the per-particles work stays free
+     * of virtual calls, boxing and data-dependent branches and can be unrolled and vectorized by
+     * the compiler.
+     * <p>
+     * Particles that have not started yet are held at their initial state. Termination is not
+     * evaluated here; call {@link #removeExpired(long, OnRemoveListener)} afterwards.
+     *
+     * @param passedTime time since the beginning of the animation.
+     */
+    public void update(long passedTime) {
+        activatePending(passedTime);
+        update(passedTime, 0, liveSize);
+    }
+
+    /**
+     * Batch update of the particles in [from, to). Disjoint ranges only touch disjoint indices of
+     * every column, so they can be updated concurrently as long as nothing is added to or removed
+     * from the store in the meantime.
+     *
+     * @see #update(long)
+     */
+    void update(long passedTime, int from, int to) {
+        final float[] animatedTime = this.animatedTime;
+        for (int i = from; i < to; i++) {
+            if (initialDelay[i] == RESET_ANIMATION_INITIAL_DELAY) {
+                initialDelay[i] = passedTime;
+            }
+            final long t = passedTime - initialDelay[i];
+            startedAnimation[i] = t >= 0;
+            animatedTime[i] = t > 0 ? t : 0;
+        }
+
+        if (hasTargetX) {
+            integrateWithTarget(from, to, animatedTime, currentX, currentVelocityX, initialX,
+                    initialVelocityX, accelerationX, millisToReachTargetVelocityX, cruiseVelocityX);
+        } else {
+            integrate(from, to, animatedTime, currentX, currentVelocityX, initialX,
+                    initialVelocityX, accelerationX);
+        }
+        if (hasTargetY) {
+            integrateWithTarget(from, to, animatedTime, currentY, currentVelocityY, initialY,
+                    initialVelocityY, accelerationY, millisToReachTargetVelocityY, cruiseVelocityY);
+        } else {
+            integrate(from, to, animatedTime, currentY, currentVelocityY, initialY,
+                    initialVelocityY, accelerationY);
+        }
+        if (hasTargetRotation) {
+            integrateWithTarget(from, to, animatedTime, currentRotation,
+                    currentRotationalVelocity, initialRotation, initialRotationalVelocity,
+                    rotationalAcceleration, millisToReachTargetRotationalVelocity,
+                    cruiseRotationalVelocity);
+        } else {
+            integrate(from, to, animatedTime, currentRotation, currentRotationalVelocity,
+                    initialRotation, initialRotationalVelocity, rotationalAcceleration);
+        }
+
+        for (int i = from; i < to; i++) {
+            final float t = animatedTime[i];
+            final float bound = millisToReachBound[i];
+            final Interpolator fadeOut = fadeOutInterpolator[i];
+            alpha[i] = fadeOut == null ? MAX_ALPHA
+                    : (int) (fadeOut.getInterpolation(t / bound) * MAX_ALPHA);
+            percentageAnimated[i] = Math.min(1f, t / bound);
+            visible[i] = startedAnimation[i];
+
+            if (touchOverride[i]) {
+                // Dragged particles follow the touch rather than their animation.
+                particles[i].applyTouchOverride();
+                visible[i] = true;
+            }
+        }
+    }
+
+    // Fast path for when no particles has a target velocity: constant acceleration throughout.
+    private static void integrate(int from, int to, float[] time, float[] x, float[] v,
+                                  float[] xi, float[] vi, float[] ai) {
+        for (int i = from; i < to; i++) {
+            final float t = time[i];
+            x[i] = xi[i] + t * (vi[i] + 0.5f * ai[i] * t);
+            v[i] = ai[i] * t + vi[i];
+        }
+    }
+
+    // Constant acceleration until the target time, then constant velocity. Particles without a
+    // target have a target time of NO_TARGET so they never get past it.
+    private static void integrateWithTarget(int from, int to, float[] time, float[] x,
+                                            float[] v, float[] xi, float[] vi, float[] ai,
+                                            long[] targetTime, float[] cruise) {
+        for (int i = from; i < to; i++) {
+            final float t = time[i];
+            final float tt = targetTime[i];
+            final float accelerated = Math.min(t, tt);
+            x[i] = xi[i] + accelerated * (vi[i] + 0.5f * ai[i] * accelerated)
+                    + (t - accelerated) * cruise[i];
+            v[i] = ai[i] * t + vi[i];
+        }
+    }
+
+    /**
+     * @return the frame holding the current draw states of this store. It is updated in place.
+     */
+    public ParticlesFrame getFrame() {
+        return frame;
+    }
+
+    @Override
+    public ParticlesFrame acquireFrame() {
+        return frame;
+    }
+
+    /**
+     * Render the particles at the provided index on the canvas.
+     *
+     * @param canvas the canvas to draw on.
+     * @param i the index to draw.
+     */
+    public void draw(Canvas canvas, int i) {
+        frame.draw(canvas, i);
+    }
+
+    // region Accessors for the current draw states.
+
+    public Particles getParticles(int i) {
+        return particles[i];
+    }
+
+    public float getX(int i) {
+        return currentX[i];
+    }
+
+    public float getY(int i) {
+        return currentY[i];
+    }
+
+    public float getRotation(int i) {
+        return currentRotation[i];
+    }
+
+    public float getVelocityX(int i) {
+        return currentVelocityX[i];
+    }
+
+    public float getVelocityY(int i) {
+        return currentVelocityY[i];
+    }
+
+    public float getRotationalVelocity(int i) {
+        return currentRotationalVelocity[i];
+    }
+
+    public int getAlpha(int i) {
+        return alpha[i];
+    }
+
+    public float getPercentageAnimated(int i) {
+        return percentageAnimated[i];
+    }
+
+    public boolean isStarted(int i) {
+        return startedAnimation[i];
+    }
+
+    public boolean isTerminated(int i) {
+        return terminated[i];
+    }
+
+    // endregion
+
+    public interface OnRemoveListener {
+        void onRemove(Particles particles);
+    }
+}
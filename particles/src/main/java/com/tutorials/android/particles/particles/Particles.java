@@ -17,6 +17,7 @@
 package com.tutorials.android.particles.particles;
 
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Rect;
@@ -25,48 +26,70 @@ import android.view.VelocityTracker;
 import android.view.animation.Interpolator;
 
 /**
- * Abstract class that represents a single confetto on the screen. This class holds all of the
- * internal states for the confetto to help it animate.
+ * Abstract class that represents a single confetto on the screen. The animation states of the
+ * confetto live in the {@link ParticleStore} it is attached to; this class is a lightweight handle
+ * onto its index in that store and is responsible for how the confetto looks.
  * <p>
  * All of the configured states are in milliseconds, e.g. pixels per millisecond for velocity.
  */
 public abstract class Particles {
-    private static final int MAX_ALPHA = 255;
-    private static final long RESET_ANIMATION_INITIAL_DELAY = -1;
-
-    private final Matrix matrix = new Matrix();
-    private final Paint workPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-    private final float[] workPairs = new float[2];
-
-    // Configured coordinate states
-    private Rect bound;
-    private long initialDelay;
-    private float initialX, initialY, initialVelocityX, initialVelocityY,
-            accelerationX, accelerationY;
-    private Float targetVelocityX, targetVelocityY;
-    private Long millisToReachTargetVelocityX, millisToReachTargetVelocityY;
-    // Configured rotation states
-    private float initialRotation, initialRotationalVelocity, rotationalAcceleration;
-    private Float targetRotationalVelocity;
-    private Long millisToReachTargetRotationalVelocity;
-    // Configured animation states
-    private long ttl;
-    private Interpolator fadeOutInterpolator;
-    private float millisToReachBound;
-    private float percentageAnimated;
-    // Current draw states
-    private float currentX, currentY, currentRotation;
+    // The store that holds the animation states of this confetto and its index in that store
+    private ParticleStore store;
+    private int index = -1;
+    // The store queue this confetto is scheduled in and its position there, or -1 if not scheduled
+    TimeQueue queue;
+    int queueIndex = -1;
+    // The frame drawing this confetto and its index there, only set during drawInternal
+    ParticlesFrame drawingFrame;
+    int drawingIndex;
+
+    /**
+     * @deprecated use {@link #getCurrentVelocityX()}, {@link #getCurrentVelocityY()} and
+     *   {@link #getCurrentRotationalVelocity()} instead. These fields are only set to the states of
+     *   the frame being drawn right before {@link #drawInternal} is called.
+     */
+    @Deprecated
     protected float currentVelocityX, currentVelocityY, currentRotationalVelocity;
-    // alpha is [0, 255]
-    private int alpha;
-    private boolean startedAnimation, terminated;
 
     // Touch events
-    private boolean touchOverride;
     private VelocityTracker velocityTracker;
     private float overrideX, overrideY, overrideVelocityX, overrideVelocityY;
     private float overrideDeltaX, overrideDeltaY;
 
+    void attach(ParticleStore store, int index) {
+        this.store = store;
+        this.index = index;
+    }
+
+    void detach() {
+        this.store = null;
+        this.index = -1;
+    }
+
+    // A confetto that is configured or animated on its own, without being added to a store
+    // first, gets a store of its own so that it can still be used standalone.
+    private ParticleStore ensureStore() {
+        if (store == null) {
+            new ParticleStore(1).add(this);
+        }
+        return store;
+    }
+
+    /**
+     * @return the store that holds the animation states of this confetto, or null if the confetto
+     *   is neither attached to one nor was configured on its own.
+     */
+    public ParticleStore getStore() {
+        return store;
+    }
+
+    /**
+     * @return the index of this confetto in its {@link #getStore() store}.
+     */
+    public int getIndex() {
+        return index;
+    }
+
     /**
      * This method should be called after all of the confetto's state variables are configured
      * and before the confetto gets animated.
@@ -74,31 +97,15 @@ public abstract class Particles {
      * @param bound the space in which the confetto can display in.
      */
     public void prepare(Rect bound) {
-        this.bound = bound;
-
-        millisToReachTargetVelocityX = computeMillisToReachTarget(targetVelocityX,
-                initialVelocityX, accelerationX);
-        millisToReachTargetVelocityY = computeMillisToReachTarget(targetVelocityY,
-                initialVelocityY, accelerationY);
-        millisToReachTargetRotationalVelocity = computeMillisToReachTarget(targetRotationalVelocity,
-                initialRotationalVelocity, rotationalAcceleration);
-
-        // Compute how long it would take to reach x/y bounds or reach TTL.
-        millisToReachBound = ttl >= 0 ? ttl : Long.MAX_VALUE;
-        final long timeToReachXBound = computeBound(initialX, initialVelocityX, accelerationX,
-                millisToReachTargetVelocityX, targetVelocityX,
-                bound.left - getWidth(), bound.right);
-        millisToReachBound = Math.min(timeToReachXBound, millisToReachBound);
-        final long timeToReachYBound = computeBound(initialY, initialVelocityY, accelerationY,
-                millisToReachTargetVelocityY, targetVelocityY,
-                bound.top - getHeight(), bound.bottom);
-        millisToReachBound = Math.min(timeToReachYBound, millisToReachBound);
-
-        configurePaint(workPaint);
+        ensureStore().prepare(index, bound);
     }
 
     private boolean doesLocationIntercept(float x, float y) {
-        return currentX <= x && x <= currentX + getWidth() &&
+        final ParticleStore store = ensureStore();
+        final float currentX = store.currentX[index];
+        final float currentY = store.currentY[index];
+        return store.startedAnimation[index] &&
+                currentX <= x && x <= currentX + getWidth() &&
                 currentY <= y && y <= currentY + getHeight();
     }
 
@@ -107,11 +114,11 @@ public abstract class Particles {
         final float y = event.getY();
 
         if (doesLocationIntercept(x, y)) {
-            this.touchOverride = true;
+            store.touchOverride[index] = true;
             this.overrideX = x;
             this.overrideY = y;
-            this.overrideDeltaX = currentX - x;
-            this.overrideDeltaY = currentY - y;
+            this.overrideDeltaX = store.currentX[index] - x;
+            this.overrideDeltaY = store.currentY[index] - y;
 
             velocityTracker = VelocityTracker.obtain();
             velocityTracker.addMovement(event);
@@ -133,20 +140,45 @@ public abstract class Particles {
     }
 
     public void onTouchUp(MotionEvent event) {
+        final ParticleStore store = ensureStore();
         velocityTracker.addMovement(event);
         velocityTracker.computeCurrentVelocity(1);
 
-        this.initialDelay = RESET_ANIMATION_INITIAL_DELAY;
-        this.initialX = event.getX() + overrideDeltaX;
-        this.initialY = event.getY() + overrideDeltaY;
-        this.initialVelocityX = velocityTracker.getXVelocity();
-        this.initialVelocityY = velocityTracker.getYVelocity();
-        this.initialRotation = currentRotation;
+        store.initialDelay[index] = ParticleStore.RESET_ANIMATION_INITIAL_DELAY;
+        store.initialX[index] = event.getX() + overrideDeltaX;
+        store.initialY[index] = event.getY() + overrideDeltaY;
+        store.initialVelocityX[index] = velocityTracker.getXVelocity();
+        store.initialVelocityY[index] = velocityTracker.getYVelocity();
+        store.initialRotation[index] = store.currentRotation[index];
 
         velocityTracker.recycle();
         velocityTracker = null;
-        prepare(bound);
-        this.touchOverride = false;
+        prepare(store.bound[index]);
+        store.touchOverride[index] = false;
+    }
+
+    /**
+     * Stop dragging this confetto without flinging it, e.g. because its animation is stopped
+     * while it is dragged. It goes back to the states it had before it was picked up.
+     */
+    public void cancelTouch() {
+        if (velocityTracker != null) {
+            velocityTracker.recycle();
+            velocityTracker = null;
+        }
+        if (store != null && store.touchOverride[index]) {
+            store.touchOverride[index] = false;
+            // It may have expired while dragged, in which case it was never rescheduled.
+            prepare(store.bound[index]);
+        }
+    }
+
+    // Replace the time-calculated states with the touch states while this confetto is dragged.
+    void applyTouchOverride() {
+        store.currentX[index] = overrideX + overrideDeltaX;
+        store.currentY[index] = overrideY + overrideDeltaY;
+        store.currentVelocityX[index] = overrideVelocityX;
+        store.currentVelocityY[index] = overrideVelocityY;
     }
 
     /**
@@ -234,39 +266,44 @@ public abstract class Particles {
      * Reset this confetto object's internal states so that it can be re-used.
      */
     public void reset() {
-        initialDelay = 0;
-        initialX = initialY = 0f;
-        initialVelocityX = initialVelocityY = 0f;
-        accelerationX = accelerationY = 0f;
-        targetVelocityX = targetVelocityY = null;
-        millisToReachTargetVelocityX = millisToReachTargetVelocityY = null;
-
-        initialRotation = 0f;
-        initialRotationalVelocity = 0f;
-        rotationalAcceleration = 0f;
-        targetRotationalVelocity = null;
-        millisToReachTargetRotationalVelocity = null;
-
-        ttl = 0;
-        millisToReachBound = 0f;
-        percentageAnimated = 0f;
-        fadeOutInterpolator = null;
-
-        currentX = currentY = 0f;
-        currentVelocityX = currentVelocityY = 0f;
-        currentRotation = 0f;
-        alpha = MAX_ALPHA;
-        startedAnimation = false;
-        terminated = false;
+        ensureStore().reset(index);
     }
 
     /**
-     * Hook to configure the global paint states before any animation happens.
+     * Hook to configure the shared paint states before this confetto is drawn. The paint is
+     * shared by every confetto in the same {@link ParticlesFrame} and is reset to an anti-aliased
+     * default paint whenever it goes from one class of confetto to another, so implementations
+     * only need to set what they change, but must set the same states every time, including
+     * those that {@link #drawInternal} changes. The current alpha is applied after this hook.
+     * <p>
+     * This may be called on a render thread while the confetto is being simulated or recycled on
+     * another one, so it must only depend on how the confetto looks and not on its animation state.
      *
      * @param paint the paint object that will be used to perform all draw operations.
      */
     protected void configurePaint(Paint paint) {
-        paint.setAlpha(alpha);
+    }
+
+    /**
+     * Hook for confetti that are drawn as a single sprite translated to their position and rotated
+     * around its center, with nothing but the current alpha applied. Such confetti can be drawn in
+     * batches by a {@link SpriteBatcher} instead of one {@link #drawInternal} call each.
+     *
+     * @return the sprite this confetto is drawn with, or null if it must be drawn on its own.
+     */
+    protected Sprite getSprite() {
+        return null;
+    }
+
+    /**
+     * Hook for the level of detail of a {@link LodPolicy}: the color of a round point that can
+     * stand in for this confetto once it is drawn too small to make out.
+     *
+     * @return the opaque color of the point, or a transparent color if this confetto must never
+     *   be drawn as a point.
+     */
+    protected int getPointColor() {
+        return Color.TRANSPARENT;
     }
 
     /**
@@ -276,64 +313,7 @@ public abstract class Particles {
      * @return whether this particular confetto is still animating.
      */
     public boolean applyUpdate(long passedTime) {
-        if (initialDelay == RESET_ANIMATION_INITIAL_DELAY) {
-            initialDelay = passedTime;
-        }
-
-        final long animatedTime = passedTime - initialDelay;
-        startedAnimation = animatedTime >= 0;
-
-        if (startedAnimation && !terminated) {
-
-            computeDistance(workPairs, animatedTime, initialX, initialVelocityX, accelerationX,
-                    millisToReachTargetVelocityX, targetVelocityX);
-            currentX = workPairs[0];
-            currentVelocityX = workPairs[1];
-
-            computeDistance(workPairs, animatedTime, initialY, initialVelocityY, accelerationY,
-                    millisToReachTargetVelocityY, targetVelocityY);
-            currentY = workPairs[0];
-            currentVelocityY = workPairs[1];
-
-            computeDistance(workPairs, animatedTime, initialRotation,
-                    initialRotationalVelocity, rotationalAcceleration,
-                    millisToReachTargetRotationalVelocity, targetRotationalVelocity);
-            currentRotation = workPairs[0];
-            currentRotationalVelocity = workPairs[1];
-
-            if (fadeOutInterpolator != null) {
-                final float interpolatedTime =
-                        fadeOutInterpolator.getInterpolation(animatedTime / millisToReachBound);
-                alpha = (int) (interpolatedTime * MAX_ALPHA);
-            } else {
-                alpha = MAX_ALPHA;
-            }
-
-            terminated = !touchOverride && animatedTime >= millisToReachBound;
-            percentageAnimated = Math.min(1f, animatedTime / millisToReachBound);
-        }
-
-        return !terminated;
-    }
-
-    private void computeDistance(float[] pair, long t, float xi, float vi, float ai, Long targetTime,
-                                 Float vTarget) {
-        // velocity with constant acceleration
-        float vX = ai * t + vi;
-        pair[1] = vX;
-
-        float x;
-        if (targetTime == null || t < targetTime) {
-            // distance covered with constant acceleration
-            // distance = xi + vi * t + 1/2 * a * t^2
-            x = xi + vi * t + 0.5f * ai * t * t;
-        } else {
-            // distance covered with constant acceleration + distance covered with max velocity
-            // distance = xi + vi * targetTime + 1/2 * a * targetTime^2
-            //     + (t - targetTime) * vTarget;
-            x = xi + vi * targetTime + 0.5f * ai * targetTime * targetTime + (t - targetTime) * vTarget;
-        }
-        pair[0] = x;
+        return ensureStore().applyUpdate(index, passedTime);
     }
 
     /**
@@ -342,31 +322,14 @@ public abstract class Particles {
      * @param canvas the canvas to draw on.
      */
     public void draw(Canvas canvas) {
-        if (touchOverride) {
-            // Replace time-calculated velocities with touch-velocities
-            currentVelocityX = overrideVelocityX;
-            currentVelocityY = overrideVelocityY;
-
-            draw(canvas, overrideX + overrideDeltaX, overrideY + overrideDeltaY, currentRotation, percentageAnimated);
-        } else if (startedAnimation && !terminated) {
-            draw(canvas, currentX, currentY, currentRotation, percentageAnimated);
-        }
-    }
-
-    private void draw(Canvas canvas, float x, float y, float rotation, float percentageAnimated) {
-        canvas.save();
-
-        canvas.clipRect(bound);
-        matrix.reset();
-        workPaint.setAlpha(alpha);
-        drawInternal(canvas, matrix, workPaint, x, y, rotation, percentageAnimated);
-
-        canvas.restore();
+        ensureStore().draw(canvas, index);
     }
 
     /**
      * Subclasses need to override this method to optimize for the way to draw the appropriate
-     * confetto on the canvas.
+     * confetto on the canvas. Every draw state is passed in so that implementations do not need
+     * to hold any per-confetto animation state. The canvas is shared with the other confetti and
+     * is not saved for each of them, so any change to its matrix or clip must be restored.
      *
      * @param canvas the canvas to draw on.
      * @param matrix an identity matrix to use for draw manipulations.
@@ -380,67 +343,93 @@ public abstract class Particles {
     protected abstract void drawInternal(Canvas canvas, Matrix matrix, Paint paint, float x,
             float y, float rotation, float percentAnimated);
 
+    // region Current draw states for override access.
+    // These may only be called from drawInternal, where they are read from the frame being drawn:
+    // a frame drawn on another thread than the simulation is a snapshot, and the store may have
+    // recycled this confetto in the meantime.
+
+    protected float getCurrentVelocityX() {
+        return checkDrawing().velocityX[drawingIndex];
+    }
+
+    protected float getCurrentVelocityY() {
+        return checkDrawing().velocityY[drawingIndex];
+    }
+
+    protected float getCurrentRotationalVelocity() {
+        return checkDrawing().rotationalVelocity[drawingIndex];
+    }
+
+    private ParticlesFrame checkDrawing() {
+        final ParticlesFrame frame = drawingFrame;
+        if (frame == null) {
+            throw new IllegalStateException("The current draw states are only set in drawInternal");
+        }
+        return frame;
+    }
+
+    // endregion
 
     // region Helper methods to set all of the necessary values for the confetto.
 
     public void setInitialDelay(long val) {
-        this.initialDelay = val;
+        ensureStore().initialDelay[index] = val;
     }
 
     public void setInitialX(float val) {
-        this.initialX = val;
+        ensureStore().initialX[index] = val;
     }
 
     public void setInitialY(float val) {
-        this.initialY = val;
+        ensureStore().initialY[index] = val;
     }
 
     public void setInitialVelocityX(float val) {
-        this.initialVelocityX = val;
+        ensureStore().initialVelocityX[index] = val;
     }
 
     public void setInitialVelocityY(float val) {
-        this.initialVelocityY = val;
+        ensureStore().initialVelocityY[index] = val;
     }
 
     public void setAccelerationX(float val) {
-        this.accelerationX = val;
+        ensureStore().accelerationX[index] = val;
     }
 
     public void setAccelerationY(float val) {
-        this.accelerationY = val;
+        ensureStore().accelerationY[index] = val;
     }
 
     public void setTargetVelocityX(Float val) {
-        this.targetVelocityX = val;
+        ensureStore().targetVelocityX[index] = val == null ? Float.NaN : val;
     }
 
     public void setTargetVelocityY(Float val) {
-        this.targetVelocityY = val;
+        ensureStore().targetVelocityY[index] = val == null ? Float.NaN : val;
     }
 
     public void setInitialRotation(float val) {
-        this.initialRotation = val;
+        ensureStore().initialRotation[index] = val;
     }
 
     public void setInitialRotationalVelocity(float val) {
-        this.initialRotationalVelocity = val;
+        ensureStore().initialRotationalVelocity[index] = val;
     }
 
     public void setRotationalAcceleration(float val) {
-        this.rotationalAcceleration = val;
+        ensureStore().rotationalAcceleration[index] = val;
     }
 
     public void setTargetRotationalVelocity(Float val) {
-        this.targetRotationalVelocity = val;
+        ensureStore().targetRotationalVelocity[index] = val == null ? Float.NaN : val;
     }
 
     public void setTTL(long val) {
-        this.ttl = val;
+        ensureStore().ttl[index] = val;
     }
 
     public void setFadeOut(Interpolator fadeOutInterpolator) {
-        this.fadeOutInterpolator = fadeOutInterpolator;
+        ensureStore().fadeOutInterpolator[index] = fadeOutInterpolator;
     }
 
     // endregion
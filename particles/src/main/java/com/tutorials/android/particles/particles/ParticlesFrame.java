@@ -0,0 +1,463 @@
+/*
+ * Copyright (C) 2021 TutorialsAndroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tutorials.android.particles.particles;
+
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import java.util.Arrays;
+
+/**
+ * The draw states of a group of particles for a single frame: everything that is needed to render
+ * them and nothing that is needed to simulate them. A {@link ParticleStore} keeps its current draw
+ * states in a frame that it updates in place, and a frame can also be copied out of a store as a
+ * snapshot that is rendered on another thread while the store keeps simulating.
+ */
+public class ParticlesFrame {
+    // Pixels around a particles that anti-aliasing may still touch
+    private static final int AA_MARGIN = 1;
+
+    private final Matrix matrix = new Matrix();
+    private final Paint workPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    // The class of the particles that configured the work paint last
+    private Class<?> workPaintClass;
+    private final Rect canvasClip = new Rect();
+    private final PointBatcher pointBatcher = new PointBatcher();
+    // Left, top, right and bottom of the particles being culled or measured
+    private final float[] box = new float[4];
+    private LodPolicy lodPolicy;
+    private boolean cullingEnabled = true;
+
+    int size;
+    // The particles handles act as the renderers for their index
+    Particles[] particles;
+    Rect[] bound;
+    float[] x, y, rotation, percentageAnimated;
+    // Read through the current velocity getters of the particles while they are drawn
+    float[] velocityX, velocityY, rotationalVelocity;
+    // alpha is [0, 255]
+    int[] alpha;
+    boolean[] visible;
+
+    /**
+     * Creates an empty frame, e.g. to {@link #append(ParticlesFrame) append} the frames of several
+     * stores to.
+     */
+    public ParticlesFrame() {
+        this(16);
+    }
+
+    ParticlesFrame(int capacity) {
+        particles = new Particles[capacity];
+        bound = new Rect[capacity];
+        x = new float[capacity];
+        y = new float[capacity];
+        rotation = new float[capacity];
+        percentageAnimated = new float[capacity];
+        velocityX = new float[capacity];
+        velocityY = new float[capacity];
+        rotationalVelocity = new float[capacity];
+        alpha = new int[capacity];
+        visible = new boolean[capacity];
+    }
+
+    void ensureCapacity(int capacity) {
+        if (capacity > particles.length) {
+            particles = Arrays.copyOf(particles, capacity);
+            bound = Arrays.copyOf(bound, capacity);
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            rotation = Arrays.copyOf(rotation, capacity);
+            percentageAnimated = Arrays.copyOf(percentageAnimated, capacity);
+            velocityX = Arrays.copyOf(velocityX, capacity);
+            velocityY = Arrays.copyOf(velocityY, capacity);
+            rotationalVelocity = Arrays.copyOf(rotationalVelocity, capacity);
+            alpha = Arrays.copyOf(alpha, capacity);
+            visible = Arrays.copyOf(visible, capacity);
+        }
+    }
+
+    /**
+     * Copy the draw states of the provided frame into this one.
+     *
+     * @param other the frame to copy.
+     */
+    public void copyFrom(ParticlesFrame other) {
+        final int size = other.size;
+        ensureCapacity(size);
+        System.arraycopy(other.particles, 0, particles, 0, size);
+        System.arraycopy(other.bound, 0, bound, 0, size);
+        System.arraycopy(other.x, 0, x, 0, size);
+        System.arraycopy(other.y, 0, y, 0, size);
+        System.arraycopy(other.rotation, 0, rotation, 0, size);
+        System.arraycopy(other.percentageAnimated, 0, percentageAnimated, 0, size);
+        System.arraycopy(other.velocityX, 0, velocityX, 0, size);
+        System.arraycopy(other.velocityY, 0, velocityY, 0, size);
+        System.arraycopy(other.rotationalVelocity, 0, rotationalVelocity, 0, size);
+        System.arraycopy(other.alpha, 0, alpha, 0, size);
+        System.arraycopy(other.visible, 0, visible, 0, size);
+
+        // Drop the references past the new size so that recycled particles can be released.
+        for (int i = size; i < this.size; i++) {
+            particles[i] = null;
+            bound[i] = null;
+        }
+        this.size = size;
+    }
+
+    /**
+     * Copy the draw states of the provided frame after the ones of this frame, so that the
+     * particles of several stores can be drawn in a single pass.
+     *
+     * @param other the frame to append.
+     */
+    public void append(ParticlesFrame other) {
+        final int size = this.size + other.size;
+        if (size > particles.length) {
+            ensureCapacity(Math.max(size, particles.length * 2));
+        }
+        final int offset = this.size;
+        final int count = other.size;
+        System.arraycopy(other.particles, 0, particles, offset, count);
+        System.arraycopy(other.bound, 0, bound, offset, count);
+        System.arraycopy(other.x, 0, x, offset, count);
+        System.arraycopy(other.y, 0, y, offset, count);
+        System.arraycopy(other.rotation, 0, rotation, offset, count);
+        System.arraycopy(other.percentageAnimated, 0, percentageAnimated, offset, count);
+        System.arraycopy(other.velocityX, 0, velocityX, offset, count);
+        System.arraycopy(other.velocityY, 0, velocityY, offset, count);
+        System.arraycopy(other.rotationalVelocity, 0, rotationalVelocity, offset, count);
+        System.arraycopy(other.alpha, 0, alpha, offset, count);
+        System.arraycopy(other.visible, 0, visible, offset, count);
+        this.size = size;
+    }
+
+    /**
+     * Remove every particles from this frame.
+     */
+    public void clear() {
+        // Drop the references so that recycled particles can be released.
+        Arrays.fill(particles, 0, size, null);
+        Arrays.fill(bound, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * @param lodPolicy the level of detail to draw this frame with, or null to draw every
+     *   particles in full.
+     */
+    public void setLodPolicy(LodPolicy lodPolicy) {
+        this.lodPolicy = lodPolicy;
+    }
+
+    /**
+     * @param cullingEnabled whether to skip the particles that draw nothing within the clip of
+     *   the canvas, see {@link #isCulled(int, Rect)}.
+     */
+    public void setCullingEnabled(boolean cullingEnabled) {
+        this.cullingEnabled = cullingEnabled;
+    }
+
+    /**
+     * @return the number of particles in this frame.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Render every visible particles of this frame on the canvas. Consecutive particles that share
+     * a bound are clipped to it once rather than one by one, and not at all if the bound already
+     * covers the clip of the canvas. Within such a run, the circles that share a color, alpha and
+     * radius are drawn together, so they are not guaranteed to overlap each other in their frame
+     * order. Particles that would draw nothing within the clip of the canvas or their bound are
+     * culled before any canvas call.
+     *
+     * @param canvas the canvas to draw on.
+     */
+    public void draw(Canvas canvas) {
+        final Rect canvasClip = getCanvasClip(canvas);
+        Rect group = null;
+        boolean clipped = false;
+        for (int i = 0; i < size; i++) {
+            if (!visible[i] || isCulled(i, canvasClip)) {
+                continue;
+            }
+            if (!sameBound(bound[i], group)) {
+                flushPoints(canvas);
+                if (clipped) {
+                    canvas.restore();
+                }
+                group = bound[i];
+                clipped = clipTo(canvas, group, canvasClip);
+            }
+            if (!drawLod(i) && !queuePoint(i)) {
+                flushPoints(canvas);
+                drawUnclipped(canvas, i);
+            }
+        }
+        flushPoints(canvas);
+        if (clipped) {
+            canvas.restore();
+        }
+    }
+
+    /**
+     * Render the particles at the provided index on the canvas, clipped to its bound. The
+     * particles handle acts as a stateless renderer: every draw state is read from this frame and
+     * the matrix and paint are shared across all indices.
+     *
+     * @param canvas the canvas to draw on.
+     * @param i the index to draw.
+     */
+    public void draw(Canvas canvas, int i) {
+        if (!visible[i]) {
+            return;
+        }
+
+        canvas.save();
+        canvas.clipRect(bound[i]);
+        drawUnclipped(canvas, i);
+        canvas.restore();
+    }
+
+    // Draws a visible particles assuming that the canvas is already clipped to its bound.
+    @SuppressWarnings("deprecation")
+    void drawUnclipped(Canvas canvas, int i) {
+        matrix.reset();
+        final Particles p = particles[i];
+        // Start every class of particles from the same paint, whatever the previous one left on
+        // it, e.g. the color filter of a ShimmeringParticles. Particles of the same class set the
+        // same states, so the paint only needs a reset when the class changes.
+        final Class<?> paintClass = p.getClass();
+        if (paintClass != workPaintClass) {
+            workPaint.reset();
+            workPaint.setFlags(Paint.ANTI_ALIAS_FLAG);
+            workPaintClass = paintClass;
+        }
+        p.configurePaint(workPaint);
+        workPaint.setAlpha(alpha[i]);
+        p.drawingFrame = this;
+        p.drawingIndex = i;
+        p.currentVelocityX = velocityX[i];
+        p.currentVelocityY = velocityY[i];
+        p.currentRotationalVelocity = rotationalVelocity[i];
+        p.drawInternal(canvas, matrix, workPaint, x[i], y[i], rotation[i], percentageAnimated[i]);
+        p.drawingFrame = null;
+    }
+
+    /**
+     * Queue a visible particles to be drawn as a point if it can be, see
+     * {@link CircleParticles#canDrawAsPoint()}. The queued points must be flushed before anything
+     * else is drawn or the canvas changes.
+     *
+     * @return whether the particles was queued, if not it must be drawn on its own.
+     */
+    boolean queuePoint(int i) {
+        return pointBatcher.add(particles[i], x[i], y[i], alpha[i]);
+    }
+
+    /**
+     * Apply the level of detail of this frame to a visible particles: skip it, or queue it as a
+     * point like {@link #queuePoint(int)}.
+     *
+     * @return whether the particles was handled, if not it must be drawn in full.
+     */
+    boolean drawLod(int i) {
+        if (lodPolicy == null) {
+            return false;
+        }
+        final Particles p = particles[i];
+        switch (lodPolicy.select(p, alpha[i])) {
+            case LodPolicy.SKIPPED:
+                return true;
+            case LodPolicy.POINT:
+                final float halfWidth = p.getWidth() / 2f, halfHeight = p.getHeight() / 2f;
+                pointBatcher.add(x[i] + halfWidth, y[i] + halfHeight,
+                        Math.max(halfWidth, halfHeight), p.getPointColor(), alpha[i]);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    void flushPoints(Canvas canvas) {
+        pointBatcher.flush(canvas);
+    }
+
+    /**
+     * @return the current clip of the canvas in its local coordinates, valid until the next call.
+     */
+    Rect getCanvasClip(Canvas canvas) {
+        if (!canvas.getClipBounds(canvasClip)) {
+            canvasClip.set(0, 0, 0, 0);
+        }
+        return canvasClip;
+    }
+
+    /**
+     * Saves the canvas and clips it to the provided bound, unless the bound covers the current
+     * clip of the canvas anyway.
+     *
+     * @return whether the canvas was saved and needs to be restored.
+     */
+    static boolean clipTo(Canvas canvas, Rect bound, Rect canvasClip) {
+        if (bound.left <= canvasClip.left && bound.top <= canvasClip.top
+                && bound.right >= canvasClip.right && bound.bottom >= canvasClip.bottom) {
+            return false;
+        }
+        canvas.save();
+        canvas.clipRect(bound);
+        return true;
+    }
+
+    static boolean sameBound(Rect a, Rect b) {
+        return a == b || (a != null && b != null && a.left == b.left && a.top == b.top
+                && a.right == b.right && a.bottom == b.bottom);
+    }
+
+    /**
+     * Compute the region that the visible particles of this frame draw on. Each particles is
+     * assumed to draw within its width and height, rotated around its center, and clipped to its
+     * bound.
+     *
+     * @param out receives the region, rounded out to whole pixels with a pixel to spare for
+     *   anti-aliasing.
+     * @return whether any particles draws anything, if not out is left untouched.
+     */
+    public boolean computeDrawBounds(Rect out) {
+        float left = Float.MAX_VALUE, top = Float.MAX_VALUE;
+        float right = -Float.MAX_VALUE, bottom = -Float.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            if (!visible[i] || !computeBox(i)) {
+                continue;
+            }
+            left = Math.min(left, box[0]);
+            top = Math.min(top, box[1]);
+            right = Math.max(right, box[2]);
+            bottom = Math.max(bottom, box[3]);
+        }
+
+        if (left >= right) {
+            return false;
+        }
+        out.set((int) Math.floor(left) - AA_MARGIN, (int) Math.floor(top) - AA_MARGIN,
+                (int) Math.ceil(right) + AA_MARGIN, (int) Math.ceil(bottom) + AA_MARGIN);
+        return true;
+    }
+
+    /**
+     * Cull pass of the renderers, run before any canvas call for the particles.
+     *
+     * @param i the index of a visible particles.
+     * @param canvasClip the current clip of the canvas.
+     * @return whether the particles draws nothing within the clip, under the same assumptions
+     *   as {@link #computeDrawBounds(Rect)}. Always false if culling is disabled.
+     */
+    boolean isCulled(int i, Rect canvasClip) {
+        if (!cullingEnabled) {
+            return false;
+        }
+        return !computeBox(i)
+                || box[0] >= canvasClip.right + AA_MARGIN || box[2] <= canvasClip.left - AA_MARGIN
+                || box[1] >= canvasClip.bottom + AA_MARGIN || box[3] <= canvasClip.top - AA_MARGIN;
+    }
+
+    // Computes the box of the particles at the provided index, rotated around its center and
+    // clipped to its bound, into box.
+    private boolean computeBox(int i) {
+        final Particles p = particles[i];
+        final float halfWidth = p.getWidth() / 2f;
+        final float halfHeight = p.getHeight() / 2f;
+        float extentX = halfWidth, extentY = halfHeight;
+        if (rotation[i] % 360f != 0) {
+            // Any rotation fits in the circle around the center.
+            extentX = extentY = (float) Math.sqrt(halfWidth * halfWidth + halfHeight * halfHeight);
+        }
+        final float centerX = x[i] + halfWidth;
+        final float centerY = y[i] + halfHeight;
+        final Rect b = bound[i];
+        box[0] = Math.max(centerX - extentX, b.left);
+        box[1] = Math.max(centerY - extentY, b.top);
+        box[2] = Math.min(centerX + extentX, b.right);
+        box[3] = Math.min(centerY + extentY, b.bottom);
+        return box[0] < box[2] && box[1] < box[3];
+    }
+
+    /**
+     * @param touchX the x coordinate to test.
+     * @param touchY the y coordinate to test.
+     * @return the index of the first visible particles that covers the provided coordinates,
+     *   or -1 if there is none.
+     */
+    public int hitTest(float touchX, float touchY) {
+        for (int i = 0; i < size; i++) {
+            if (visible[i] && x[i] <= touchX && touchX <= x[i] + particles[i].getWidth()
+                    && y[i] <= touchY && touchY <= y[i] + particles[i].getHeight()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // region Accessors for the draw states.
+
+    public Particles getParticles(int i) {
+        return particles[i];
+    }
+
+    public float getX(int i) {
+        return x[i];
+    }
+
+    public float getY(int i) {
+        return y[i];
+    }
+
+    public float getRotation(int i) {
+        return rotation[i];
+    }
+
+    public int getAlpha(int i) {
+        return alpha[i];
+    }
+
+    public float getPercentageAnimated(int i) {
+        return percentageAnimated[i];
+    }
+
+    public boolean isVisible(int i) {
+        return visible[i];
+    }
+
+    // endregion
+
+    /**
+     * Provides the frame that should be drawn next.
+     */
+    public interface Source {
+        /**
+         * Called on the thread that draws the frame. The returned frame must not be modified by
+         * any other thread until the next call.
+         *
+         * @return the most recent frame.
+         */
+        ParticlesFrame acquireFrame();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2021 TutorialsAndroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tutorials.android.particles.particles;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A lock-free triple buffer of {@link ParticlesFrame} snapshots between one simulating thread and
+ * one drawing thread. The simulating thread copies its store into the back frame and swaps it
+ * with the middle one; the drawing thread swaps the middle frame with its front frame whenever a
+ * newer one has been published. Neither side ever waits for the other, and the drawing thread
+ * always gets the most recently published frame.
+ */
+public class ParticlesFrameBuffer implements ParticlesFrame.Source {
+    private static final int INDEX_MASK = 0x3;
+    private static final int NEW_FRAME = 0x4;
+
+    private final ParticlesFrame[] frames;
+    // Index of the frame in the middle, plus NEW_FRAME if it has not been acquired yet
+    private final AtomicInteger middle = new AtomicInteger(1);
+    // Owned by the simulating thread
+    private int back = 0;
+    // Owned by the drawing thread
+    private int front = 2;
+
+    public ParticlesFrameBuffer() {
+        this(16);
+    }
+
+    public ParticlesFrameBuffer(int initialCapacity) {
+        frames = new ParticlesFrame[] {
+                new ParticlesFrame(initialCapacity),
+                new ParticlesFrame(initialCapacity),
+                new ParticlesFrame(initialCapacity)
+        };
+    }
+
+    /**
+     * Called on the simulating thread to publish a snapshot of the provided frame.
+     *
+     * @param frame the frame to copy, typically {@link ParticleStore#getFrame()}.
+     */
+    public void publish(ParticlesFrame frame) {
+        frames[back].copyFrom(frame);
+        back = middle.getAndSet(back | NEW_FRAME) & INDEX_MASK;
+    }
+
+    @Override
+    public ParticlesFrame acquireFrame() {
+        if ((middle.get() & NEW_FRAME) != 0) {
+            front = middle.getAndSet(front) & INDEX_MASK;
+        }
+        return frames[front];
+    }
+}
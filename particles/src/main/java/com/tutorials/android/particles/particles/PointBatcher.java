@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2021 TutorialsAndroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tutorials.android.particles.particles;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Queues round points, for {@link CircleParticles} and for the particles that a {@link LodPolicy}
+ * draws as points, and draws every queued point that shares a color, alpha and radius with a
+ * single {@link Canvas#drawPoints} call. The groups are looked up in a small open-addressing table
+ * and their buffers are reused from one flush to the next, so queueing a point does not allocate.
+ * <p>
+ * The alpha is rounded to one of {@link #ALPHA_LEVELS} levels so that fading points do not split
+ * into a group per alpha value: the alpha of a point may be off by up to 8 of 255, which is hardly
+ * visible, in exchange for at most {@link #ALPHA_LEVELS} draw calls per color and radius.
+ */
+class PointBatcher {
+    static final int ALPHA_LEVELS = 16;
+    private static final int ALPHA_STEP = 255 / (ALPHA_LEVELS - 1);
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final List<Group> queued = new ArrayList<>();
+    private final List<Group> recycled = new ArrayList<>();
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private Group[] slots = new Group[INITIAL_CAPACITY];
+
+    PointBatcher() {
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeCap(Paint.Cap.ROUND);
+    }
+
+    /**
+     * @param particles the particles to queue.
+     * @param x the left of the particles.
+     * @param y the top of the particles.
+     * @param alpha the alpha of the particles, [0, 255].
+     * @return whether the particles was queued, if not it must be drawn on its own.
+     */
+    boolean add(Particles particles, float x, float y, int alpha) {
+        if (!(particles instanceof CircleParticles)) {
+            return false;
+        }
+        final CircleParticles circle = (CircleParticles) particles;
+        if (!circle.canDrawAsPoint()) {
+            return false;
+        }
+
+        final float radius = circle.getRadius();
+        add(x + radius, y + radius, radius, circle.getColor(), alpha);
+        return true;
+    }
+
+    /**
+     * @param centerX the x coordinate of the center of the point.
+     * @param centerY the y coordinate of the center of the point.
+     * @param radius the radius of the point.
+     * @param color the color of the point, its alpha is replaced.
+     * @param alpha the alpha of the point, [0, 255].
+     */
+    void add(float centerX, float centerY, float radius, int color, int alpha) {
+        // Like configurePaint followed by setAlpha: the alpha replaces the one of the color.
+        final int level = (alpha + ALPHA_STEP / 2) / ALPHA_STEP;
+        obtainGroup((level * ALPHA_STEP << 24) | (color & 0x00FFFFFF), radius)
+                .add(centerX, centerY);
+    }
+
+    /**
+     * Draw and clear every queued group.
+     */
+    void flush(Canvas canvas) {
+        if (queued.isEmpty()) {
+            return;
+        }
+
+        for (int k = 0, size = queued.size(); k < size; k++) {
+            final Group group = queued.get(k);
+            paint.setColor(group.color);
+            paint.setStrokeWidth(group.radius * 2);
+            canvas.drawPoints(group.points, 0, group.count * 2, paint);
+            group.count = 0;
+            slots[group.slot] = null;
+            recycled.add(group);
+        }
+        queued.clear();
+    }
+
+    private Group obtainGroup(int color, float radius) {
+        final long key = ((long) Float.floatToIntBits(radius) << 32) | (color & 0xFFFFFFFFL);
+        final int mask = slots.length - 1;
+        int slot = hash(key) & mask;
+        Group group;
+        while ((group = slots[slot]) != null) {
+            if (keys[slot] == key) {
+                return group;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        group = recycled.isEmpty() ? new Group() : recycled.remove(recycled.size() - 1);
+        group.color = color;
+        group.radius = radius;
+        group.slot = slot;
+        keys[slot] = key;
+        slots[slot] = group;
+        queued.add(group);
+        if (queued.size() * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return group;
+    }
+
+    private void rehash(int capacity) {
+        keys = new long[capacity];
+        slots = new Group[capacity];
+        final int mask = capacity - 1;
+        for (int k = 0, size = queued.size(); k < size; k++) {
+            final Group group = queued.get(k);
+            final long key = ((long) Float.floatToIntBits(group.radius) << 32)
+                    | (group.color & 0xFFFFFFFFL);
+            int slot = hash(key) & mask;
+            while (slots[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            group.slot = slot;
+            keys[slot] = key;
+            slots[slot] = group;
+        }
+    }
+
+    private static int hash(long key) {
+        final long h = key * 0x9e3779b97f4a7c15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static class Group {
+        float[] points = new float[32];
+        int count;
+        int color;
+        float radius;
+        int slot;
+
+        void add(float centerX, float centerY) {
+            final int offset = count * 2;
+            if (offset == points.length) {
+                points = Arrays.copyOf(points, points.length * 2);
+            }
+            points[offset] = centerX;
+            points[offset + 1] = centerY;
+            count++;
+        }
+    }
+}
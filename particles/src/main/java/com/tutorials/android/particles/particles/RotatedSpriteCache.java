@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2021 TutorialsAndroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tutorials.android.particles.particles;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Renders a {@link ParticlesFrame} by blitting pre-rotated copies of the particles
+ * {@link Particles#getSprite() sprites} rather than transforming every sprite with a matrix. The
+ * rotation of each particles is rounded to the nearest of a fixed number of angles, and the copy
+ * for that angle is rendered the first time it is needed. This trades a little memory and angular
+ * precision for much cheaper draws where {@link SpriteBatcher} is not supported.
+ * <p>
+ * The copies of the least recently drawn sprites are dropped once the cache grows past its
+ * maximum size. Tinted {@link Sprite#withColor(int) masks} share the copies of their mask. A
+ * cache can be shared by several views as long as they all draw on the same thread.
+ */
+public class RotatedSpriteCache {
+    public static final int DEFAULT_NUM_ANGLES = 32;
+    public static final long DEFAULT_MAX_BYTES = 4L * 1024 * 1024;
+
+    private final int numAngles;
+    private final float anglesPerDegree;
+    private final long maxBytes;
+    private final Map<Sprite, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeBytes;
+
+    private final Paint paint = new Paint();
+    // Only used to render the rotated copies
+    private final Paint renderPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+    // The entry drawn last, which is never dropped
+    private Entry lastEntry;
+
+    public RotatedSpriteCache() {
+        this(DEFAULT_NUM_ANGLES, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param numAngles the number of angles a full turn is divided into.
+     * @param maxBytes the memory that the rotated copies may use before the least recently drawn
+     *   ones are dropped.
+     */
+    public RotatedSpriteCache(int numAngles, long maxBytes) {
+        this.numAngles = Math.max(1, numAngles);
+        this.anglesPerDegree = this.numAngles / 360f;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the memory currently used by the rotated copies.
+     */
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * Drop every rotated copy.
+     */
+    public void clear() {
+        entries.clear();
+        lastEntry = null;
+        sizeBytes = 0;
+    }
+
+    /**
+     * Render every visible particles of the provided frame on the canvas.
+     *
+     * @param canvas the canvas to draw on.
+     * @param frame the frame to draw.
+     */
+    public void draw(Canvas canvas, ParticlesFrame frame) {
+        final Rect canvasClip = frame.getCanvasClip(canvas);
+        Rect group = null;
+        boolean clipped = false;
+        for (int i = 0, size = frame.size; i < size; i++) {
+            if (!frame.visible[i] || frame.isCulled(i, canvasClip)) {
+                continue;
+            }
+
+            final Rect bound = frame.bound[i];
+            if (!ParticlesFrame.sameBound(bound, group)) {
+                frame.flushPoints(canvas);
+                if (clipped) {
+                    canvas.restore();
+                }
+                group = bound;
+                clipped = ParticlesFrame.clipTo(canvas, group, canvasClip);
+            }
+
+            if (frame.drawLod(i)) {
+                continue;
+            }
+
+            final Sprite sprite = frame.particles[i].getSprite();
+            if (sprite == null) {
+                if (!frame.queuePoint(i)) {
+                    frame.flushPoints(canvas);
+                    frame.drawUnclipped(canvas, i);
+                }
+                continue;
+            }
+            frame.flushPoints(canvas);
+
+            final int angle = Math.round(frame.rotation[i] * anglesPerDegree) % numAngles;
+            final Bitmap rotated = getRotated(sprite.base, angle < 0 ? angle + numAngles : angle);
+            // The copies are centered on the sprite.
+            final float left = frame.x[i] + (sprite.width - rotated.getWidth()) / 2f;
+            final float top = frame.y[i] + (sprite.height - rotated.getHeight()) / 2f;
+            paint.setColor(sprite.color);
+            paint.setAlpha(frame.alpha[i]);
+            canvas.drawBitmap(rotated, left, top, paint);
+        }
+        frame.flushPoints(canvas);
+        if (clipped) {
+            canvas.restore();
+        }
+        trimToSize();
+    }
+
+    private Bitmap getRotated(Sprite sprite, int angle) {
+        // Looked up on every draw, even for a run of the same sprite, so that the access order of
+        // the map stays the order the sprites were last drawn in.
+        Entry entry = entries.get(sprite);
+        if (entry == null) {
+            entry = new Entry(numAngles);
+            entries.put(sprite, entry);
+        }
+        lastEntry = entry;
+
+        Bitmap rotated = entry.rotated[angle];
+        if (rotated == null) {
+            rotated = render(sprite, angle * 360f / numAngles);
+            entry.rotated[angle] = rotated;
+            entry.sizeBytes += rotated.getByteCount();
+            sizeBytes += rotated.getByteCount();
+        }
+        return rotated;
+    }
+
+    // Renders the sprite rotated around its center into a square that fits any rotation.
+    private Bitmap render(Sprite sprite, float degrees) {
+        final int diagonal = (int) Math.ceil(
+                Math.sqrt(sprite.width * sprite.width + sprite.height * sprite.height));
+        final Bitmap bitmap = Bitmap.createBitmap(diagonal, diagonal,
+                sprite.isMask() ? Bitmap.Config.ALPHA_8 : Bitmap.Config.ARGB_8888);
+        final Canvas canvas = new Canvas(bitmap);
+        canvas.translate(diagonal / 2f, diagonal / 2f);
+        canvas.rotate(degrees);
+        final float halfWidth = sprite.width / 2f, halfHeight = sprite.height / 2f;
+        canvas.drawBitmap(sprite.bitmap, sprite.getRegion(),
+                new RectF(-halfWidth, -halfHeight, halfWidth, halfHeight), renderPaint);
+        return bitmap;
+    }
+
+    // Drops the least recently drawn sprites, but never the one drawn last.
+    private void trimToSize() {
+        final Iterator<Entry> iterator = entries.values().iterator();
+        while (sizeBytes > maxBytes && iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            if (entry == lastEntry) {
+                break;
+            }
+            iterator.remove();
+            sizeBytes -= entry.sizeBytes;
+        }
+    }
+
+    private static class Entry {
+        final Bitmap[] rotated;
+        long sizeBytes;
+
+        Entry(int numAngles) {
+            this.rotated = new Bitmap[numAngles];
+        }
+    }
+}
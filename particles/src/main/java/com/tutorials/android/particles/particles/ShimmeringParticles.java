@@ -19,45 +19,109 @@ package com.tutorials.android.particles.particles;
 import android.animation.ArgbEvaluator;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.ColorFilter;
 import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.PorterDuff;
 import android.graphics.PorterDuffColorFilter;
-import android.os.SystemClock;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Random;
 
 public class ShimmeringParticles extends BitmapParticles {
-    private final ArgbEvaluator evaluator = new ArgbEvaluator();
-    private final int fromColor, toColor;
+    private final Palette palette;
     private final long waveLength, halfWaveLength;
     private final long randomStart;
+    private final FrameClock clock;
 
     public ShimmeringParticles(Bitmap bitmap, int fromColor, int toColor, long waveLength,
                                Random random) {
+        this(bitmap, fromColor, toColor, waveLength, random, FrameClock.SYSTEM);
+    }
+
+    /**
+     * @param clock the clock that drives the shimmer, e.g. to render it deterministically.
+     */
+    public ShimmeringParticles(Bitmap bitmap, int fromColor, int toColor, long waveLength,
+                               Random random, FrameClock clock) {
         super(bitmap);
-        this.fromColor = fromColor;
-        this.toColor = toColor;
+        this.palette = Palette.get(fromColor, toColor);
         this.waveLength = waveLength;
         this.halfWaveLength = waveLength / 2;
+        this.clock = clock;
+
+        // Start at a random phase of the wave.
+        final long currentTime = clock.currentTimeMillis();
+        this.randomStart = currentTime - random.nextInt((int) Math.max(1, waveLength));
+    }
 
-        final int currentTime = Math.abs((int) SystemClock.elapsedRealtime());
-        this.randomStart = currentTime - random.nextInt(currentTime);
+    @Override
+    protected Sprite getSprite() {
+        // The shimmer is a per-confetto color filter, which a batch cannot apply.
+        return null;
+    }
+
+    @Override
+    protected int getPointColor() {
+        // The shimmer changes the color over time, which a point would lose.
+        return Color.TRANSPARENT;
     }
 
     @Override
     protected void drawInternal(Canvas canvas, Matrix matrix, Paint paint, float x, float y,
             float rotation, float percentageAnimated) {
-        final long currTime = SystemClock.elapsedRealtime();
+        final long currTime = clock.currentTimeMillis();
         final long fraction = (currTime - randomStart) % waveLength;
         final float animated = fraction < halfWaveLength
                 ? (float) fraction / halfWaveLength
                 : ((float) waveLength - fraction) / halfWaveLength;
 
-        final int color = (int) evaluator.evaluate(animated, fromColor, toColor);
-        final ColorFilter colorFilter = new PorterDuffColorFilter(color, PorterDuff.Mode.SRC_ATOP);
-        paint.setColorFilter(colorFilter);
+        paint.setColorFilter(palette.getColorFilter(animated));
         super.drawInternal(canvas, matrix, paint, x, y, rotation, percentageAnimated);
     }
+
+    /**
+     * The shimmer colors between two colors, precomputed over the wave phase and shared by every
+     * confetto shimmering between the same colors so that drawing does not allocate.
+     */
+    private static final class Palette {
+        // The number of steps the phase [0, 1] is quantized to
+        private static final int NUM_STEPS = 64;
+        // Keyed by both colors; there are only ever a handful of distinct pairs.
+        private static final Map<Long, Palette> palettes = new HashMap<>();
+
+        private final int[] colors = new int[NUM_STEPS + 1];
+        // Created on first use, then reused for every draw at that step
+        private final ColorFilter[] colorFilters = new ColorFilter[NUM_STEPS + 1];
+
+        private Palette(int fromColor, int toColor) {
+            final ArgbEvaluator evaluator = new ArgbEvaluator();
+            for (int step = 0; step <= NUM_STEPS; step++) {
+                colors[step] = (int) evaluator.evaluate((float) step / NUM_STEPS, fromColor,
+                        toColor);
+            }
+        }
+
+        static synchronized Palette get(int fromColor, int toColor) {
+            final Long key = ((long) fromColor << 32) | (toColor & 0xFFFFFFFFL);
+            Palette palette = palettes.get(key);
+            if (palette == null) {
+                palette = new Palette(fromColor, toColor);
+                palettes.put(key, palette);
+            }
+            return palette;
+        }
+
+        ColorFilter getColorFilter(float animated) {
+            final int step = Math.round(animated * NUM_STEPS);
+            ColorFilter colorFilter = colorFilters[step];
+            if (colorFilter == null) {
+                colorFilter = new PorterDuffColorFilter(colors[step], PorterDuff.Mode.SRC_ATOP);
+                colorFilters[step] = colorFilter;
+            }
+            return colorFilter;
+        }
+    }
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2021 TutorialsAndroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tutorials.android.particles.particles;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.Rect;
+
+/**
+ * An image that particles are drawn with: either a whole bitmap or a region of a shared
+ * {@link SpriteAtlas} bitmap. Sprites are immutable.
+ * <p>
+ * A sprite of an {@link Bitmap.Config#ALPHA_8} bitmap is a mask that is filled with its
+ * {@link #getColor() color} when drawn, so a single mask can be shared by sprites of any number
+ * of colors, see {@link #withColor(int)}.
+ */
+public final class Sprite {
+    final Bitmap bitmap;
+    final int left, top, width, height;
+    // The opaque fill color of a mask, white otherwise so that tinting has no effect
+    final int color;
+    // The sprite this one was tinted from, or itself
+    final Sprite base;
+    private final boolean wholeBitmap;
+    private final boolean mask;
+    // Computed on first use, 0 until then
+    private int averageColor;
+
+    /**
+     * @param bitmap the bitmap to draw in its entirety.
+     */
+    public Sprite(Bitmap bitmap) {
+        this(bitmap, new Rect(0, 0, bitmap.getWidth(), bitmap.getHeight()));
+    }
+
+    /**
+     * @param bitmap the bitmap that holds the sprite, e.g. an atlas.
+     * @param region the region of the bitmap to draw.
+     */
+    public Sprite(Bitmap bitmap, Rect region) {
+        this(null, bitmap, region.left, region.top, region.width(), region.height(), Color.WHITE);
+    }
+
+    private Sprite(Sprite base, Bitmap bitmap, int left, int top, int width, int height,
+                   int color) {
+        this.base = base == null ? this : base;
+        this.bitmap = bitmap;
+        this.left = left;
+        this.top = top;
+        this.width = width;
+        this.height = height;
+        this.mask = bitmap.getConfig() == Bitmap.Config.ALPHA_8;
+        this.color = mask ? color | 0xFF000000 : Color.WHITE;
+        this.wholeBitmap = left == 0 && top == 0
+                && width == bitmap.getWidth() && height == bitmap.getHeight();
+    }
+
+    /**
+     * @param color the color to fill this mask with, its alpha is ignored.
+     * @return a sprite sharing the bitmap and region of this one but filled with the provided
+     *   color. Colors have no effect on sprites that are not masks.
+     */
+    public Sprite withColor(int color) {
+        return new Sprite(base, bitmap, left, top, width, height, color);
+    }
+
+    public Bitmap getBitmap() {
+        return bitmap;
+    }
+
+    /**
+     * @return a copy of the region of {@link #getBitmap()} that holds this sprite.
+     */
+    public Rect getRegion() {
+        return new Rect(left, top, left + width, top + height);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the color that this sprite is filled with if it is a mask, white otherwise.
+     */
+    public int getColor() {
+        return color;
+    }
+
+    /**
+     * @return the opaque color of this sprite as seen from afar: its color for masks, otherwise
+     *   the average color of its visible pixels, or transparent if it has none.
+     */
+    public int getAverageColor() {
+        if (mask) {
+            return color;
+        }
+        if (base != this) {
+            return base.getAverageColor();
+        }
+        if (averageColor == 0) {
+            averageColor = computeAverageColor();
+        }
+        return averageColor;
+    }
+
+    // Samples a grid of at most 8x8 pixels, weighting each by its alpha.
+    private int computeAverageColor() {
+        final int stepX = Math.max(1, width / 8), stepY = Math.max(1, height / 8);
+        long red = 0, green = 0, blue = 0, weight = 0;
+        for (int y = top + stepY / 2; y < top + height; y += stepY) {
+            for (int x = left + stepX / 2; x < left + width; x += stepX) {
+                final int pixel = bitmap.getPixel(x, y);
+                final int alpha = Color.alpha(pixel);
+                red += Color.red(pixel) * alpha;
+                green += Color.green(pixel) * alpha;
+                blue += Color.blue(pixel) * alpha;
+                weight += alpha;
+            }
+        }
+        if (weight == 0) {
+            // Remembered as a transparent white so that it is not computed again.
+            return 0x00FFFFFF;
+        }
+        return Color.rgb((int) (red / weight), (int) (green / weight), (int) (blue / weight));
+    }
+
+    /**
+     * @return whether this sprite is an alpha mask that is filled with its color.
+     */
+    public boolean isMask() {
+        return mask;
+    }
+
+    /**
+     * @return whether this sprite covers its whole bitmap.
+     */
+    public boolean isWholeBitmap() {
+        return wholeBitmap;
+    }
+}
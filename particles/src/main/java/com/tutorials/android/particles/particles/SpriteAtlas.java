@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2021 TutorialsAndroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tutorials.android.particles.particles;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A single bitmap that packs many sprites, so that particles of different shapes and colors share
+ * one texture and can be drawn in the same batch by a {@link SpriteBatcher}.
+ */
+public class SpriteAtlas {
+    // Transparent gap between sprites so that sampling one never bleeds into its neighbours
+    private static final int PADDING = 1;
+
+    private final Bitmap bitmap;
+    private final List<Sprite> sprites;
+
+    private SpriteAtlas(Bitmap bitmap, List<Sprite> sprites) {
+        this.bitmap = bitmap;
+        this.sprites = Collections.unmodifiableList(sprites);
+    }
+
+    /**
+     * Packs the provided bitmaps into a new atlas. The bitmaps are copied, so they can be recycled
+     * afterwards.
+     *
+     * @param bitmaps the bitmaps to pack.
+     * @return the atlas holding a sprite for each bitmap, in the same order.
+     */
+    public static SpriteAtlas pack(List<Bitmap> bitmaps) {
+        final Builder builder = new Builder();
+        for (Bitmap bitmap : bitmaps) {
+            builder.add(bitmap);
+        }
+        return builder.build();
+    }
+
+    public Bitmap getBitmap() {
+        return bitmap;
+    }
+
+    /**
+     * @return the number of sprites in this atlas.
+     */
+    public int size() {
+        return sprites.size();
+    }
+
+    /**
+     * @param index the index of the sprite in the order it was added.
+     * @return the sprite at the provided index.
+     */
+    public Sprite getSprite(int index) {
+        return sprites.get(index);
+    }
+
+    public List<Sprite> getSprites() {
+        return sprites;
+    }
+
+    /**
+     * Draws the content of a single sprite. The canvas is translated and clipped to the region of
+     * the sprite, so the content should be drawn from (0, 0).
+     */
+    public interface Painter {
+        void paint(Canvas canvas);
+    }
+
+    public static class Builder {
+        private final Bitmap.Config config;
+        private final List<Entry> entries = new ArrayList<>();
+
+        public Builder() {
+            this(Bitmap.Config.ARGB_8888);
+        }
+
+        /**
+         * @param config the config of the atlas bitmap, e.g. {@link Bitmap.Config#ALPHA_8} to
+         *   build an atlas of masks that only keeps the alpha of what is drawn into it.
+         */
+        public Builder(Bitmap.Config config) {
+            this.config = config;
+        }
+
+        /**
+         * @param bitmap the bitmap to copy into the atlas.
+         * @return the index of its sprite in the built atlas.
+         */
+        public int add(Bitmap bitmap) {
+            return add(bitmap.getWidth(), bitmap.getHeight(),
+                    canvas -> canvas.drawBitmap(bitmap, 0, 0, null));
+        }
+
+        /**
+         * @param width the width of the sprite.
+         * @param height the height of the sprite.
+         * @param painter draws the sprite directly into the atlas.
+         * @return the index of the sprite in the built atlas.
+         */
+        public int add(int width, int height, Painter painter) {
+            entries.add(new Entry(width, height, painter));
+            return entries.size() - 1;
+        }
+
+        /**
+         * Packs every added sprite into rows ("shelves") of decreasing height and rasterizes them
+         * into a single bitmap.
+         *
+         * @return the new atlas.
+         */
+        public SpriteAtlas build() {
+            final int count = entries.size();
+            final Entry[] sorted = entries.toArray(new Entry[count]);
+            Arrays.sort(sorted, (a, b) -> b.height - a.height);
+
+            // Aim for a roughly square atlas that is at least as wide as the widest sprite.
+            long area = 0;
+            int maxWidth = 1;
+            for (Entry entry : sorted) {
+                area += (long) (entry.width + PADDING) * (entry.height + PADDING);
+                maxWidth = Math.max(maxWidth, entry.width + PADDING);
+            }
+            final int atlasWidth = Math.max(maxWidth, (int) Math.ceil(Math.sqrt(area)));
+
+            int x = 0, y = 0, shelfHeight = 0, usedWidth = 1;
+            for (Entry entry : sorted) {
+                if (x + entry.width > atlasWidth) {
+                    x = 0;
+                    y += shelfHeight + PADDING;
+                    shelfHeight = 0;
+                }
+                entry.region = new Rect(x, y, x + entry.width, y + entry.height);
+                x += entry.width + PADDING;
+                shelfHeight = Math.max(shelfHeight, entry.height);
+                usedWidth = Math.max(usedWidth, entry.region.right);
+            }
+            final int atlasHeight = Math.max(1, y + shelfHeight);
+
+            final Bitmap bitmap = Bitmap.createBitmap(usedWidth, atlasHeight, config);
+            final Canvas canvas = new Canvas(bitmap);
+            final List<Sprite> sprites = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                final Entry entry = entries.get(i);
+                canvas.save();
+                canvas.clipRect(entry.region);
+                canvas.translate(entry.region.left, entry.region.top);
+                entry.painter.paint(canvas);
+                canvas.restore();
+                sprites.add(new Sprite(bitmap, entry.region));
+            }
+            return new SpriteAtlas(bitmap, sprites);
+        }
+    }
+
+    private static class Entry {
+        final int width, height;
+        final Painter painter;
+        Rect region;
+
+        Entry(int width, int height, Painter painter) {
+            this.width = width;
+            this.height = height;
+            this.painter = painter;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2021 TutorialsAndroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tutorials.android.particles.particles;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Shader;
+import android.os.Build;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders a {@link ParticlesFrame} with one {@link Canvas#drawVertices} call per sprite bitmap
+ * rather than one draw call per particles. Every particles that returns a
+ * {@link Particles#getSprite() sprite} becomes a rotated, textured quad whose alpha is carried by
+ * its vertex colors, and the quads sharing a bitmap are drawn together in a single call. Sprites
+ * of the same {@link SpriteAtlas} share its bitmap, so they all end up in the same batch, and
+ * the colors of {@link Sprite#isMask() mask} sprites are carried by the vertex colors too.
+ * <p>
+ * Like {@link ParticlesFrame#draw(Canvas)}, the canvas is clipped once per run of particles that
+ * share a bound. Particles without a sprite are still drawn on their own, in order: the sprites
+ * queued before them are flushed first. Within a run of sprites, the ones sharing a bitmap are
+ * drawn together, so sprites of different bitmaps are not guaranteed to overlap in their frame
+ * order. Circles are batched into points, and particles outside the clip are culled, the same way
+ * as by {@link ParticlesFrame#draw(Canvas)}.
+ * <p>
+ * {@link Canvas#drawVertices} is only supported by hardware accelerated canvases from Android Q,
+ * see {@link #isSupported(Canvas)}.
+ */
+public class SpriteBatcher {
+    // Vertex indices are shorts, so a single call can address at most 65536 vertices.
+    private static final int MAX_QUADS_PER_CALL = 16384;
+    private static final int FLOATS_PER_QUAD = 8;
+
+    private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Map<Bitmap, Batch> batches = new IdentityHashMap<>();
+    private final List<Batch> queued = new ArrayList<>();
+    private short[] indices = new short[0];
+
+    private Batch lastBatch;
+    private int frameCount;
+
+    public SpriteBatcher() {
+        // Masks are filled with the paint color before being modulated by the vertex colors.
+        paint.setColor(Color.WHITE);
+    }
+
+    /**
+     * @param canvas the canvas that is about to be drawn on.
+     * @return whether the provided canvas can render the batches.
+     */
+    public static boolean isSupported(Canvas canvas) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q || !canvas.isHardwareAccelerated();
+    }
+
+    /**
+     * Render every visible particles of the provided frame on the canvas.
+     *
+     * @param canvas the canvas to draw on.
+     * @param frame the frame to draw.
+     */
+    public void draw(Canvas canvas, ParticlesFrame frame) {
+        frameCount++;
+        final Rect canvasClip = frame.getCanvasClip(canvas);
+        Rect group = null;
+        boolean clipped = false;
+        for (int i = 0, size = frame.size; i < size; i++) {
+            if (!frame.visible[i] || frame.isCulled(i, canvasClip)) {
+                continue;
+            }
+
+            final Rect bound = frame.bound[i];
+            if (!ParticlesFrame.sameBound(bound, group)) {
+                flush(canvas);
+                frame.flushPoints(canvas);
+                if (clipped) {
+                    canvas.restore();
+                }
+                group = bound;
+                clipped = ParticlesFrame.clipTo(canvas, group, canvasClip);
+            }
+
+            if (frame.drawLod(i)) {
+                continue;
+            }
+
+            final Sprite sprite = frame.particles[i].getSprite();
+            if (sprite == null) {
+                if (!frame.queuePoint(i)) {
+                    flush(canvas);
+                    frame.flushPoints(canvas);
+                    frame.drawUnclipped(canvas, i);
+                }
+                continue;
+            }
+
+            Batch batch = lastBatch;
+            if (batch == null || batch.bitmap != sprite.bitmap) {
+                batch = obtainBatch(sprite.bitmap);
+                lastBatch = batch;
+            }
+            if (batch.quadCount == MAX_QUADS_PER_CALL) {
+                flush(canvas);
+            }
+            if (batch.quadCount == 0) {
+                queued.add(batch);
+            }
+            batch.add(sprite, frame.x[i], frame.y[i], frame.rotation[i], frame.alpha[i]);
+        }
+        flush(canvas);
+        frame.flushPoints(canvas);
+        if (clipped) {
+            canvas.restore();
+        }
+        lastBatch = null;
+        releaseUnusedBatches();
+    }
+
+    private Batch obtainBatch(Bitmap bitmap) {
+        Batch batch = batches.get(bitmap);
+        if (batch == null) {
+            batch = new Batch(bitmap);
+            batches.put(bitmap, batch);
+        }
+        batch.lastUsedFrame = frameCount;
+        return batch;
+    }
+
+    // Draws every queued batch.
+    private void flush(Canvas canvas) {
+        if (queued.isEmpty()) {
+            return;
+        }
+
+        for (int k = 0, size = queued.size(); k < size; k++) {
+            final Batch batch = queued.get(k);
+            final int vertexCount = batch.quadCount * FLOATS_PER_QUAD;
+            final int indexCount = batch.quadCount * 6;
+            ensureIndices(indexCount);
+            paint.setShader(batch.shader);
+            canvas.drawVertices(Canvas.VertexMode.TRIANGLES, vertexCount, batch.vertices, 0,
+                    batch.texCoords, 0, batch.colors, 0, indices, 0, indexCount, paint);
+            batch.quadCount = 0;
+        }
+        paint.setShader(null);
+        queued.clear();
+    }
+
+    // Two triangles per quad: top-left, top-right, bottom-right and top-left, bottom-right,
+    // bottom-left.
+    private void ensureIndices(int indexCount) {
+        if (indices.length >= indexCount) {
+            return;
+        }
+        final int quads = indexCount / 6;
+        indices = new short[quads * 6];
+        for (int q = 0; q < quads; q++) {
+            final int vertex = q * 4;
+            final int index = q * 6;
+            indices[index] = (short) vertex;
+            indices[index + 1] = (short) (vertex + 1);
+            indices[index + 2] = (short) (vertex + 2);
+            indices[index + 3] = (short) vertex;
+            indices[index + 4] = (short) (vertex + 2);
+            indices[index + 5] = (short) (vertex + 3);
+        }
+    }
+
+    // Drops the batches of the bitmaps that were not drawn this frame so that they can be released.
+    private void releaseUnusedBatches() {
+        final Iterator<Batch> iterator = batches.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().lastUsedFrame != frameCount) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static class Batch {
+        final Bitmap bitmap;
+        final BitmapShader shader;
+        float[] vertices = new float[0];
+        float[] texCoords = new float[0];
+        int[] colors = new int[0];
+        int quadCount;
+        int lastUsedFrame;
+
+        Batch(Bitmap bitmap) {
+            this.bitmap = bitmap;
+            this.shader = new BitmapShader(bitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+        }
+
+        // Appends the quad of a sprite whose top-left corner is at (x, y) before being rotated
+        // around its center, like BitmapParticles draws it.
+        void add(Sprite sprite, float x, float y, float rotation, int alpha) {
+            if (quadCount * FLOATS_PER_QUAD == vertices.length) {
+                grow();
+            }
+
+            final float halfWidth = sprite.width / 2f;
+            final float halfHeight = sprite.height / 2f;
+
+            final double radians = Math.toRadians(rotation);
+            final float cos = (float) Math.cos(radians);
+            final float sin = (float) Math.sin(radians);
+            final float centerX = x + halfWidth;
+            final float centerY = y + halfHeight;
+            // The rotated half extents along the width and the height of the sprite
+            final float ux = halfWidth * cos, uy = halfWidth * sin;
+            final float vx = -halfHeight * sin, vy = halfHeight * cos;
+
+            final float[] v = vertices;
+            final int offset = quadCount * FLOATS_PER_QUAD;
+            v[offset] = centerX - ux - vx;
+            v[offset + 1] = centerY - uy - vy;
+            v[offset + 2] = centerX + ux - vx;
+            v[offset + 3] = centerY + uy - vy;
+            v[offset + 4] = centerX + ux + vx;
+            v[offset + 5] = centerY + uy + vy;
+            v[offset + 6] = centerX - ux + vx;
+            v[offset + 7] = centerY - uy + vy;
+
+            final float[] t = texCoords;
+            final float left = sprite.left, top = sprite.top;
+            final float right = left + sprite.width, bottom = top + sprite.height;
+            t[offset] = left;
+            t[offset + 1] = top;
+            t[offset + 2] = right;
+            t[offset + 3] = top;
+            t[offset + 4] = right;
+            t[offset + 5] = bottom;
+            t[offset + 6] = left;
+            t[offset + 7] = bottom;
+
+            // Modulated with the texture: white for bitmaps so that only the alpha has an effect,
+            // the fill color for masks.
+            final int color = (alpha << 24) | (sprite.color & 0x00FFFFFF);
+            final int vertex = quadCount * 4;
+            colors[vertex] = colors[vertex + 1] = colors[vertex + 2] = colors[vertex + 3] = color;
+            quadCount++;
+        }
+
+        private void grow() {
+            final int oldQuads = vertices.length / FLOATS_PER_QUAD;
+            final int quads = Math.min(MAX_QUADS_PER_CALL, Math.max(16, oldQuads * 2));
+            final float[] grownVertices = new float[quads * FLOATS_PER_QUAD];
+            System.arraycopy(vertices, 0, grownVertices, 0, vertices.length);
+            vertices = grownVertices;
+            final float[] grownTexCoords = new float[quads * FLOATS_PER_QUAD];
+            System.arraycopy(texCoords, 0, grownTexCoords, 0, texCoords.length);
+            texCoords = grownTexCoords;
+            final int[] grownColors = new int[quads * 4];
+            System.arraycopy(colors, 0, grownColors, 0, colors.length);
+            colors = grownColors;
+        }
+    }
+}
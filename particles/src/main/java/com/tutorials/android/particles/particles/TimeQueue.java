@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2021 TutorialsAndroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tutorials.android.particles.particles;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of particles keyed by an absolute animation time, e.g. the time at which they
+ * start or expire. Every scheduled particles remembers the queue it is in and its position in the
+ * heap so that it can be rescheduled or unscheduled in O(log n) when it is dragged or removed
+ * early. A particles is in at most one queue at a time.
+ */
+final class TimeQueue {
+    private Particles[] heap = new Particles[16];
+    private long[] times = new long[16];
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Schedule (or reschedule) the provided particles at the provided time, taking it out of any
+     * other queue it is in.
+     */
+    void schedule(Particles particles, long time) {
+        if (particles.queue != null) {
+            particles.queue.unschedule(particles);
+        }
+
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+            times = Arrays.copyOf(times, size * 2);
+        }
+        siftUp(size++, particles, time);
+    }
+
+    void unschedule(Particles particles) {
+        if (particles.queue != this) {
+            return;
+        }
+
+        final int index = particles.queueIndex;
+        particles.queue = null;
+        particles.queueIndex = -1;
+        final int last = --size;
+        final Particles moved = heap[last];
+        final long movedTime = times[last];
+        heap[last] = null;
+        if (index != last) {
+            siftDown(index, moved, movedTime);
+            if (heap[index] == moved) {
+                siftUp(index, moved, movedTime);
+            }
+        }
+    }
+
+    /**
+     * @return the earliest scheduled time, or {@link Long#MAX_VALUE} if nothing is scheduled.
+     */
+    long peekTime() {
+        return size == 0 ? Long.MAX_VALUE : times[0];
+    }
+
+    /**
+     * @return the particles scheduled the earliest, now unscheduled.
+     */
+    Particles poll() {
+        final Particles first = heap[0];
+        unschedule(first);
+        return first;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            heap[i].queue = null;
+            heap[i].queueIndex = -1;
+            heap[i] = null;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int index, Particles particles, long time) {
+        while (index > 0) {
+            final int parent = (index - 1) >>> 1;
+            if (times[parent] <= time) {
+                break;
+            }
+            set(index, heap[parent], times[parent]);
+            index = parent;
+        }
+        set(index, particles, time);
+    }
+
+    private void siftDown(int index, Particles particles, long time) {
+        final int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            final int right = child + 1;
+            if (right < size && times[right] < times[child]) {
+                child = right;
+            }
+            if (time <= times[child]) {
+                break;
+            }
+            set(index, heap[child], times[child]);
+            index = child;
+        }
+        set(index, particles, time);
+    }
+
+    private void set(int index, Particles particles, long time) {
+        heap[index] = particles;
+        times[index] = time;
+        particles.queue = this;
+        particles.queueIndex = index;
+    }
+}
@@ -0,0 +1,91 @@
+package com.tutorials.android.particles;
+
+import android.graphics.Rect;
+
+import com.tutorials.android.particles.particles.ParticleStore;
+import com.tutorials.android.particles.particles.Particles;
+import com.tutorials.android.particles.particles.ParticlesFrame;
+import com.tutorials.android.particles.particles.TestParticles;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.tutorials.android.particles.particles.TestParticles.rect;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class DamageTrackerTest {
+
+    @Test
+    public void test_update_unionsPreviousAndCurrentFrame() {
+        final ParticlesFrame first = createFrame(100, 100);
+        final ParticlesFrame second = createFrame(300, 400);
+        final Rect firstBounds = drawBounds(first);
+        final Rect secondBounds = drawBounds(second);
+
+        final DamageTracker tracker = new DamageTracker();
+        final Rect damage = new Rect();
+        assertTrue(tracker.update(first, damage));
+        assertEquals(firstBounds, damage);
+        assertEquals(firstBounds.width() * firstBounds.height(), tracker.getDamagedArea());
+
+        assertTrue(tracker.update(second, damage));
+        assertEquals(rect(firstBounds.left, firstBounds.top, secondBounds.right,
+                secondBounds.bottom), damage);
+        assertEquals(damage.width() * damage.height(), tracker.getDamagedArea());
+    }
+
+    @Test
+    public void test_update_erasesPreviousFrameOnce() {
+        final ParticlesFrame frame = createFrame(100, 100);
+        final ParticlesFrame empty = new ParticleStore().getFrame();
+
+        final DamageTracker tracker = new DamageTracker();
+        final Rect damage = new Rect();
+        tracker.update(frame, damage);
+        assertTrue(tracker.update(empty, damage));
+        assertEquals(drawBounds(frame), damage);
+
+        final Rect untouched = rect(1, 2, 3, 4);
+        assertFalse(tracker.update(empty, untouched));
+        assertEquals(rect(1, 2, 3, 4), untouched);
+        assertEquals(0, tracker.getDamagedArea());
+    }
+
+    @Test
+    public void test_reset_forgetsPreviousFrame() {
+        final ParticlesFrame second = createFrame(300, 400);
+
+        final DamageTracker tracker = new DamageTracker();
+        final Rect damage = new Rect();
+        tracker.update(createFrame(100, 100), damage);
+        tracker.reset();
+        assertEquals(0, tracker.getDamagedArea());
+        assertTrue(tracker.update(second, damage));
+        assertEquals(drawBounds(second), damage);
+    }
+
+    private static ParticlesFrame createFrame(int x, int y) {
+        final Rect bound = rect(0, 0, 1080, 1920);
+        final ParticleStore store = new ParticleStore();
+        final Particles particles = new TestParticles();
+        store.add(particles);
+        particles.setInitialX(x);
+        particles.setInitialY(y);
+        particles.setTTL(-1);
+        particles.prepare(bound);
+        store.update(16);
+        return store.getFrame();
+    }
+
+    private static Rect drawBounds(ParticlesFrame frame) {
+        final Rect bounds = new Rect();
+        assertTrue(frame.computeDrawBounds(bounds));
+        return bounds;
+    }
+}
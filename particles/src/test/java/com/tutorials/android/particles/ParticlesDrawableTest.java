@@ -0,0 +1,85 @@
+package com.tutorials.android.particles;
+
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+
+import com.tutorials.android.particles.particles.TestParticles;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.tutorials.android.particles.particles.TestParticles.rect;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ParticlesDrawableTest {
+    // Held here since drawables only keep a weak reference to their callback.
+    private final Drawable.Callback callback = new Drawable.Callback() {
+        @Override
+        public void invalidateDrawable(Drawable who) {
+        }
+
+        @Override
+        public void scheduleDrawable(Drawable who, Runnable what, long when) {
+        }
+
+        @Override
+        public void unscheduleDrawable(Drawable who, Runnable what) {
+        }
+    };
+    private ParticlesDrawable drawable;
+
+    @Before
+    public void setup() {
+        drawable = new ParticlesDrawable(random -> new TestParticles(),
+                new ParticlesSource(0, 0, 100, 0));
+        drawable.setBounds(0, 0, 100, 100);
+    }
+
+    @Test
+    public void test_setVisible_pausesAndResumesTicking() {
+        drawable.setCallback(callback);
+        drawable.start();
+        assertTrue(isTicking());
+
+        drawable.setVisible(false, false);
+        assertFalse(isTicking());
+        assertTrue(drawable.isRunning());
+
+        drawable.setVisible(true, false);
+        assertTrue(isTicking());
+
+        drawable.stop();
+        assertFalse(isTicking());
+        assertFalse(drawable.isRunning());
+    }
+
+    @Test
+    public void test_start_waitsForHostAndSize() {
+        drawable.start();
+        // Nothing can draw the drawable yet.
+        assertFalse(isTicking());
+
+        drawable.setCallback(callback);
+        drawable.draw(new Canvas());
+        assertTrue(isTicking());
+
+        drawable.setBounds(0, 0, 0, 0);
+        assertFalse(isTicking());
+        drawable.stop();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void test_getParticlesManager_rejectsBound() {
+        drawable.getParticlesManager().setBound(rect(0, 0, 10, 10));
+    }
+
+    private boolean isTicking() {
+        return ParticlesTicker.getInstance().getActiveEffects().contains(drawable);
+    }
+}
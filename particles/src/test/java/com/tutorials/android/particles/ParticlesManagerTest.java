@@ -0,0 +1,114 @@
+package com.tutorials.android.particles;
+
+import android.graphics.Rect;
+
+import com.tutorials.android.particles.particles.ParticleStore;
+import com.tutorials.android.particles.particles.Particles;
+import com.tutorials.android.particles.particles.TestParticles;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.tutorials.android.particles.particles.TestParticles.rect;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ParticlesManagerTest {
+    private static final long FRAME_MILLIS = 16;
+
+    @Test
+    public void test_step_isDeterministic() {
+        final List<float[]> first = simulate(42);
+        final List<float[]> second = simulate(42);
+
+        assertEquals(first.size(), second.size());
+        for (int frame = 0; frame < first.size(); frame++) {
+            assertArrayEquals(first.get(frame), second.get(frame), 0f);
+        }
+    }
+
+    @Test
+    public void test_step_emitsAtTheConfiguredRate() {
+        final ParticlesManager manager = createManager(rect(0, 0, 10000, 10000))
+                .setEmissionDuration(ParticlesManager.INFINITE_DURATION)
+                .setEmissionRate(100);
+        manager.setSeed(7);
+
+        // Ten simulated seconds, far faster than real time.
+        for (long time = 0; time <= 10000; time += FRAME_MILLIS) {
+            assertTrue(manager.step(time));
+        }
+        assertEquals(1000, manager.getParticlesCount(), 100);
+    }
+
+    @Test
+    public void test_step_finishesOnceEveryParticlesExpired() {
+        final ParticlesManager manager = createManager(rect(0, 0, 1080, 1920))
+                .setNumInitialCount(50)
+                .setEmissionDuration(500)
+                .setEmissionRate(200)
+                .setTTL(300);
+        manager.setSeed(7);
+
+        long time = 0;
+        while (manager.step(time)) {
+            time += FRAME_MILLIS;
+            assertTrue("Should have finished", time < 10000);
+        }
+        assertEquals(0, manager.getParticlesCount());
+        assertTrue(time >= 500);
+        assertFalse(manager.step(time));
+    }
+
+    // Records the positions of every live particles after each frame.
+    private static List<float[]> simulate(long seed) {
+        final Set<Particles> live = new LinkedHashSet<>();
+        final ParticlesManager manager = createManager(rect(0, 0, 1080, 1920))
+                .setNumInitialCount(100)
+                .setEmissionDuration(2000)
+                .setEmissionRate(500)
+                .setTTL(1500)
+                .setVelocityX(0, 0.2f)
+                .setVelocityY(0.3f, 0.1f)
+                .setAccelerationY(0.0001f, 0.00005f)
+                .setRotationalVelocity(0.1f, 0.1f)
+                .setParticlesAnimationListener(
+                        new ParticlesManager.ParticlesAnimationListenerAdapter() {
+                            @Override
+                            public void onParticlesEnter(Particles particles) {
+                                live.add(particles);
+                            }
+
+                            @Override
+                            public void onParticlesExit(Particles particles) {
+                                live.remove(particles);
+                            }
+                        });
+        manager.setSeed(seed);
+
+        final List<float[]> frames = new ArrayList<>();
+        for (long time = 0; manager.step(time); time += FRAME_MILLIS) {
+            final float[] positions = new float[live.size() * 3];
+            int offset = 0;
+            for (Particles particles : live) {
+                final ParticleStore store = particles.getStore();
+                positions[offset++] = store.getX(particles.getIndex());
+                positions[offset++] = store.getY(particles.getIndex());
+                positions[offset++] = store.getRotation(particles.getIndex());
+            }
+            frames.add(positions);
+        }
+        return frames;
+    }
+
+    private static ParticlesManager createManager(Rect bound) {
+        return new ParticlesManager(random -> new TestParticles(),
+                new ParticlesSource(0, 0, bound.right, 0), bound);
+    }
+}
@@ -0,0 +1,83 @@
+package com.tutorials.android.particles;
+
+import com.tutorials.android.particles.particles.Particles;
+import com.tutorials.android.particles.particles.TestParticles;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ParticlesPoolTest {
+
+    @Test
+    public void test_offer_discardNewestKeepsPooledParticles() {
+        final ParticlesPool pool = new ParticlesPool();
+        pool.setMaxSize(2);
+        final Particles first = new TestParticles();
+        final Particles second = new TestParticles();
+
+        assertTrue(pool.offer(first));
+        assertTrue(pool.offer(second));
+        assertFalse(pool.offer(new TestParticles()));
+        assertEquals(2, pool.size());
+        assertEquals(1, pool.getEvictions());
+        assertSame(first, pool.poll());
+        assertSame(second, pool.poll());
+    }
+
+    @Test
+    public void test_offer_discardOldestMakesRoom() {
+        final ParticlesPool pool = new ParticlesPool();
+        pool.setMaxSize(2);
+        pool.setEvictionPolicy(ParticlesPool.EvictionPolicy.DISCARD_OLDEST);
+        final Particles second = new TestParticles();
+        final Particles third = new TestParticles();
+
+        pool.offer(new TestParticles());
+        pool.offer(second);
+        assertTrue(pool.offer(third));
+        assertEquals(2, pool.size());
+        assertEquals(1, pool.getEvictions());
+        assertSame(second, pool.poll());
+        assertSame(third, pool.poll());
+    }
+
+    @Test
+    public void test_poll_countsHitsAndMisses() {
+        final ParticlesPool pool = new ParticlesPool();
+        pool.prewarm(random -> new TestParticles(), new Random(0), 3);
+        assertEquals(3, pool.size());
+
+        for (int i = 0; i < 5; i++) {
+            final Particles particles = pool.poll();
+            assertEquals(i >= 3, particles == null);
+        }
+        assertEquals(3, pool.getHits());
+        assertEquals(2, pool.getMisses());
+        assertNull(pool.poll());
+
+        pool.resetStats();
+        assertEquals(0, pool.getHits());
+        assertEquals(0, pool.getMisses());
+    }
+
+    @Test
+    public void test_prewarm_stopsAtMaxSize() {
+        final ParticlesPool pool = new ParticlesPool();
+        pool.setMaxSize(4);
+        pool.prewarm(random -> new TestParticles(), new Random(0), 100);
+        assertEquals(4, pool.size());
+        // Prewarming neither hits nor misses.
+        assertEquals(0, pool.getHits());
+        assertEquals(0, pool.getMisses());
+
+        pool.trimToSize(1);
+        assertEquals(1, pool.size());
+    }
+}
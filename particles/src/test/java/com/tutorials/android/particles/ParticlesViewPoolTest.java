@@ -0,0 +1,96 @@
+package com.tutorials.android.particles;
+
+import android.app.Activity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import com.tutorials.android.particles.particles.ParticlesFrame;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ParticlesViewPoolTest {
+    private final ParticlesFrame frame = new ParticlesFrame();
+    private ViewGroup parent;
+
+    @Before
+    public void setup() {
+        final Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        parent = new FrameLayout(activity);
+        activity.setContentView(parent);
+    }
+
+    @Test
+    public void test_release_parksViewInParent() {
+        final ParticlesViewPool pool = ParticlesViewPool.of(parent);
+        assertSame(pool, ParticlesViewPool.of(parent));
+        final ParticlesView view = borrow(pool);
+
+        pool.release(view);
+        assertEquals(1, pool.size());
+        assertSame(parent, view.getParent());
+        assertEquals(View.INVISIBLE, view.getVisibility());
+
+        // A parked view stays in the parent after the frame.
+        ShadowLooper.idleMainLooper();
+        assertSame(parent, view.getParent());
+    }
+
+    @Test
+    public void test_obtain_unparksParkedView() {
+        final ParticlesViewPool pool = ParticlesViewPool.of(parent);
+        final ParticlesView view = borrow(pool);
+        pool.release(view);
+
+        assertSame(view, borrow(pool));
+        assertEquals(0, pool.size());
+        assertEquals(View.VISIBLE, view.getVisibility());
+        assertEquals(1, parent.getChildCount());
+
+        // The pool is empty again, so the next view is a new one.
+        assertNotSame(view, borrow(pool));
+    }
+
+    @Test
+    public void test_release_removesOverflowAfterFrame() {
+        final ParticlesViewPool pool = ParticlesViewPool.of(parent);
+        final ParticlesView parked = borrow(pool);
+        final ParticlesView overflow = borrow(pool);
+        pool.release(parked);
+        pool.release(overflow);
+        assertEquals(1, pool.size());
+
+        ShadowLooper.idleMainLooper();
+        assertNull(overflow.getParent());
+        assertSame(parent, parked.getParent());
+
+        pool.setMaxSize(0);
+        ShadowLooper.idleMainLooper();
+        assertEquals(0, pool.size());
+        assertEquals(0, parent.getChildCount());
+    }
+
+    // Borrows a view the way the managers do: bound before it is attached.
+    private ParticlesView borrow(ParticlesViewPool pool) {
+        final ParticlesView view = pool.obtain();
+        view.bind(() -> frame);
+        if (view.getParent() == null) {
+            parent.addView(view);
+        }
+        view.reset();
+        return view;
+    }
+}
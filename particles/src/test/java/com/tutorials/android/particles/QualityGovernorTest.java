@@ -0,0 +1,78 @@
+package com.tutorials.android.particles;
+
+import com.tutorials.android.particles.QualityGovernor.Level;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class QualityGovernorTest {
+    private static final long OVER_BUDGET_NANOS = 20000000L;
+    private static final long UNDER_BUDGET_NANOS = 1000000L;
+
+    @Test
+    public void test_report_stepsDownAndBackUpOneLevelAtATime() {
+        final List<Level> levels = new ArrayList<>();
+        final QualityGovernor governor = new QualityGovernor(8f)
+                .setHysteresis(2, 3)
+                .setListener((previous, level, averageFrameTimeMillis) -> levels.add(level));
+        final Object manager = new Object();
+
+        for (int i = 0; i < 20; i++) {
+            governor.report(manager, OVER_BUDGET_NANOS);
+        }
+        assertEquals(Level.NO_ROTATION, governor.getLevel());
+        assertEquals(Arrays.asList(Level.REDUCED_EMISSION, Level.CAPPED_COUNT, Level.NO_FADE,
+                Level.NO_ROTATION), levels);
+
+        levels.clear();
+        for (int i = 0; i < 1000 && governor.getLevel() != Level.FULL; i++) {
+            governor.report(manager, UNDER_BUDGET_NANOS);
+        }
+        assertEquals(Arrays.asList(Level.NO_FADE, Level.CAPPED_COUNT, Level.REDUCED_EMISSION,
+                Level.FULL), levels);
+    }
+
+    @Test
+    public void test_report_addsUpTheManagersOfAFrame() {
+        final QualityGovernor governor = new QualityGovernor(8f).setHysteresis(1, 1);
+        final Object first = new Object();
+        final Object second = new Object();
+
+        // Each manager is under budget on its own, but not together.
+        for (int i = 0; i < 3; i++) {
+            governor.report(first, 5000000L);
+            governor.report(second, 5000000L);
+        }
+        assertEquals(10f, governor.getAverageFrameTimeMillis(), 0.001f);
+        assertTrue(governor.getLevel() != Level.FULL);
+    }
+
+    @Test
+    public void test_getEmissionScale_decreasesWithEveryLevel() {
+        final QualityGovernor governor = new QualityGovernor(8f).setHysteresis(1, 1);
+        final Object manager = new Object();
+        assertEquals(1f, governor.getEmissionScale(), 0f);
+
+        float previousScale = governor.getEmissionScale();
+        governor.report(manager, OVER_BUDGET_NANOS);
+        while (governor.getLevel() != Level.NO_ROTATION) {
+            governor.report(manager, OVER_BUDGET_NANOS);
+            assertTrue(governor.getEmissionScale() < previousScale);
+            previousScale = governor.getEmissionScale();
+        }
+        assertTrue(governor.isLiveCountCapped());
+        assertFalse(governor.isFadeOutEnabled());
+        assertFalse(governor.isRotationEnabled());
+
+        governor.reset();
+        assertEquals(Level.FULL, governor.getLevel());
+        assertEquals(1f, governor.getEmissionScale(), 0f);
+    }
+}
@@ -0,0 +1,67 @@
+package com.tutorials.android.particles;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RandomSourceTest {
+    private static final long SEED = 42L;
+
+    @Test
+    public void test_fill_matchesNextFloatSequence() {
+        final RandomSource random = new RandomSource(SEED);
+        final float[] expected = new float[100];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = random.nextFloat();
+            assertTrue(expected[i] >= 0f && expected[i] < 1f);
+        }
+
+        final float[] filled = new float[100];
+        final RandomSource bulk = new RandomSource(SEED);
+        bulk.fill(filled, 0, 30);
+        bulk.fill(filled, 30, 70);
+        assertArrayEquals(expected, filled, 0f);
+        // Both sources continue from the same state.
+        assertEquals(random.nextLong(), bulk.nextLong());
+    }
+
+    @Test
+    public void test_fill_servesPrefetchedFloatsFirst() {
+        final RandomSource random = new RandomSource(SEED);
+        final float[] expected = new float[20];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = random.nextFloat();
+        }
+
+        final RandomSource prefetching = new RandomSource(SEED);
+        final float[] actual = new float[20];
+        prefetching.prefetch(10);
+        actual[0] = prefetching.nextFloat();
+        prefetching.fill(actual, 1, 19);
+        assertArrayEquals(expected, actual, 0f);
+    }
+
+    @Test
+    public void test_fill_usesOverriddenGenerator() {
+        final RandomSource constant = new RandomSource(SEED) {
+            @Override
+            public long nextLong() {
+                return 0L;
+            }
+        };
+        final float[] filled = new float[4];
+        constant.fill(filled);
+        assertArrayEquals(new float[4], filled, 0f);
+    }
+
+    @Test
+    public void test_setSeed_restartsSequence() {
+        final RandomSource random = new RandomSource(SEED);
+        final float first = random.nextFloat();
+        random.prefetch(8);
+        random.setSeed(SEED);
+        assertEquals(first, random.nextFloat(), 0f);
+    }
+}
@@ -0,0 +1,48 @@
+package com.tutorials.android.particles;
+
+import android.view.MotionEvent;
+
+import com.tutorials.android.particles.particles.ParticleStore;
+import com.tutorials.android.particles.particles.Particles;
+import com.tutorials.android.particles.particles.TestParticles;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.tutorials.android.particles.particles.TestParticles.rect;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class TouchControllerTest {
+
+    @Test
+    public void test_reset_releasesDraggedParticles() {
+        final ParticleStore store = new ParticleStore();
+        final Particles particles = new TestParticles();
+        store.add(particles);
+        particles.setInitialX(100f);
+        particles.setInitialY(100f);
+        particles.setInitialVelocityX(1f);
+        particles.setTTL(-1);
+        particles.prepare(rect(0, 0, 1000, 1000));
+        store.update(0);
+
+        final TouchController controller = new TouchController(store);
+        assertTrue(controller.onTouchEvent(touch(MotionEvent.ACTION_DOWN, 105f, 105f)));
+        controller.reset();
+
+        // Moved by its own velocity again rather than held where it was picked up.
+        store.update(16);
+        assertEquals(116f, store.getX(particles.getIndex()), 0f);
+        assertFalse(controller.onTouchEvent(touch(MotionEvent.ACTION_MOVE, 500f, 500f)));
+    }
+
+    private static MotionEvent touch(int action, float x, float y) {
+        return MotionEvent.obtain(0, 0, action, x, y, 0);
+    }
+}
@@ -0,0 +1,60 @@
+package com.tutorials.android.particles.particles;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class LodPolicyTest {
+    private static final int RED = 0xFFFF0000;
+
+    @Test
+    public void test_select_countsEveryLevelOfDetail() {
+        final LodPolicy policy = new LodPolicy();
+        policy.beginFrame(1f);
+        final Particles tiny = new CircleParticles(RED, 0.5f);
+        final Particles large = new CircleParticles(RED, 10f);
+
+        assertEquals(LodPolicy.SKIPPED, policy.select(large, LodPolicy.DEFAULT_MIN_ALPHA - 1));
+        assertEquals(LodPolicy.POINT, policy.select(tiny, 255));
+        assertEquals(LodPolicy.POINT, policy.select(tiny, 128));
+        assertEquals(LodPolicy.FULL, policy.select(large, LodPolicy.DEFAULT_MIN_ALPHA));
+        assertEquals(1, policy.getSkippedCount());
+        assertEquals(2, policy.getPointCount());
+        assertEquals(1, policy.getFullCount());
+
+        policy.beginFrame(1f);
+        assertEquals(0, policy.getSkippedCount());
+        assertEquals(0, policy.getPointCount());
+        assertEquals(0, policy.getFullCount());
+    }
+
+    @Test
+    public void test_select_drawsTinyParticlesWithoutPointColorInFull() {
+        final LodPolicy policy = new LodPolicy().setPointSize(100f);
+        policy.beginFrame(1f);
+        // Smaller than the point size, but it has no point color to be drawn with.
+        assertEquals(LodPolicy.FULL, policy.select(new TestParticles(), 255));
+        assertEquals(0, policy.getPointCount());
+    }
+
+    @Test
+    public void test_select_followsTheFrameScale() {
+        final LodPolicy policy = new LodPolicy().setPointSize(10f);
+        final Particles particles = new CircleParticles(RED, 3f);
+
+        policy.beginFrame(1f);
+        assertEquals(LodPolicy.POINT, policy.select(particles, 255));
+        // Twice as large on screen, so no longer smaller than the point size.
+        policy.beginFrame(2f);
+        assertEquals(LodPolicy.FULL, policy.select(particles, 255));
+
+        policy.setMinAlpha(0).setPointSize(0f);
+        policy.beginFrame(1f);
+        assertEquals(LodPolicy.FULL, policy.select(particles, 0));
+    }
+}
@@ -0,0 +1,82 @@
+package com.tutorials.android.particles.particles;
+
+import android.graphics.Rect;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+
+public class ParallelStepperTest {
+
+    @Test
+    public void test_update_matchesSerialUpdate() throws Exception {
+        final Rect bound = new Rect();
+        bound.right = 1080;
+        bound.bottom = 1920;
+
+        final ParticleStore serial = createStore(bound, 10000);
+        final ParticleStore parallel = createStore(bound, 10000);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            final ParallelStepper stepper = new ParallelStepper(executor, 4);
+            stepper.setThreshold(0);
+            stepper.setMinChunkSize(100);
+
+            for (long time = 0; time < 5000; time += 16) {
+                serial.update(time);
+                stepper.update(parallel, time);
+                assertEquals(serial.size(), parallel.size());
+
+                for (int i = 0; i < serial.size(); i++) {
+                    assertEquals(serial.getX(i), parallel.getX(i), 0f);
+                    assertEquals(serial.getY(i), parallel.getY(i), 0f);
+                    assertEquals(serial.getRotation(i), parallel.getRotation(i), 0f);
+                    assertEquals(serial.getAlpha(i), parallel.getAlpha(i));
+                }
+
+                assertEquals(serial.removeExpired(time, particles -> {}),
+                        parallel.removeExpired(time, particles -> {}));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_update_belowThresholdStaysSerial() {
+        final ParallelStepper stepper = new ParallelStepper(command -> {
+            throw new AssertionError("Should not be dispatched");
+        }, 4);
+        stepper.setThreshold(1000);
+        stepper.setMinChunkSize(1);
+
+        final ParticleStore store = createStore(new Rect(), 999);
+        stepper.update(store, 16);
+    }
+
+    private static ParticleStore createStore(Rect bound, int numParticles) {
+        final Random random = new Random(42);
+        final ParticleStore store = new ParticleStore();
+        for (int i = 0; i < numParticles; i++) {
+            final Particles particles = new TestParticles();
+            store.add(particles);
+            particles.setInitialDelay(random.nextInt(1000));
+            particles.setInitialX(random.nextFloat() * bound.right);
+            particles.setInitialVelocityX(random.nextFloat() * 0.2f - 0.1f);
+            particles.setInitialVelocityY(random.nextFloat() * 0.2f);
+            particles.setAccelerationY(0.0005f);
+            particles.setInitialRotation(random.nextFloat() * 360f);
+            particles.setRotationalAcceleration(0.0003f);
+            particles.setTargetRotationalVelocity(i % 2 == 0 ? 0.36f : null);
+            particles.setTTL(i % 3 == 0 ? 2000 : -1);
+            particles.setFadeOut(i % 5 == 0 ? v -> 1f - v : null);
+            particles.prepare(bound);
+        }
+        return store;
+    }
+}
@@ -0,0 +1,92 @@
+package com.tutorials.android.particles.particles;
+
+import android.graphics.Rect;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.tutorials.android.particles.particles.TestParticles.rect;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ParticleStoreTest {
+    private static final long[] TIMES = { 50, 10, 40, 20, 30 };
+
+    @Test
+    public void test_removeExpired_removesParticlesByExpiryTime() {
+        final ParticleStore store = new ParticleStore();
+        final Rect bound = rect(0, 0, 1000, 1000);
+        final Particles[] byTtl = new Particles[TIMES.length];
+        for (long ttl : TIMES) {
+            final Particles particles = add(store, bound);
+            particles.setTTL(ttl);
+            particles.prepare(bound);
+            byTtl[(int) (ttl / 10) - 1] = particles;
+        }
+
+        final List<Particles> removed = new ArrayList<>();
+        assertEquals(0, store.removeExpired(9, removed::add));
+        assertEquals(2, store.removeExpired(20, removed::add));
+        assertEquals(3, store.removeExpired(50, removed::add));
+        assertEquals(0, store.size());
+        for (int i = 0; i < byTtl.length; i++) {
+            assertSame(byTtl[i], removed.get(i));
+        }
+    }
+
+    @Test
+    public void test_activatePending_activatesParticlesByStartTime() {
+        final ParticleStore store = new ParticleStore();
+        final Rect bound = rect(0, 0, 1000, 1000);
+        final Particles[] byDelay = new Particles[TIMES.length];
+        for (long delay : TIMES) {
+            final Particles particles = add(store, bound);
+            particles.setInitialDelay(delay);
+            particles.setTTL(-1);
+            particles.prepare(bound);
+            byDelay[(int) (delay / 10) - 1] = particles;
+        }
+        assertEquals(0, store.liveSize());
+        assertEquals(TIMES.length, store.pendingSize());
+
+        store.activatePending(25);
+        assertEquals(2, store.liveSize());
+        store.activatePending(50);
+        assertEquals(TIMES.length, store.liveSize());
+        for (int i = 0; i < byDelay.length; i++) {
+            assertSame(byDelay[i], store.getParticles(i));
+        }
+    }
+
+    @Test
+    public void test_clear_restartsTimeForPendingParticles() {
+        final ParticleStore store = new ParticleStore();
+        final Rect bound = rect(0, 0, 1000, 1000);
+        add(store, bound).prepare(bound);
+        store.activatePending(100);
+        store.clear();
+
+        // A new animation starts at 0, so the delay is still to come.
+        final Particles particles = add(store, bound);
+        particles.setInitialDelay(50);
+        particles.prepare(bound);
+        assertEquals(0, store.liveSize());
+        assertEquals(1, store.pendingSize());
+
+        store.activatePending(49);
+        assertEquals(0, store.liveSize());
+        store.activatePending(50);
+        assertEquals(1, store.liveSize());
+    }
+
+    private static Particles add(ParticleStore store, Rect bound) {
+        final Particles particles = new TestParticles();
+        store.add(particles);
+        // Far from the edges so that only the time to live ends the particles.
+        particles.setInitialX(bound.left + 500);
+        particles.setInitialY(bound.top + 500);
+        return particles;
+    }
+}
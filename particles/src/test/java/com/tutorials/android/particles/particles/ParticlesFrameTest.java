@@ -0,0 +1,175 @@
+package com.tutorials.android.particles.particles;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.tutorials.android.particles.particles.TestParticles.rect;
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ParticlesFrameTest {
+    private static final int NUM_PARTICLES = 1000;
+
+    @Test
+    public void test_draw_clipsOncePerBound() {
+        final Rect bound = rect(0, 0, 500, 500);
+        final ParticlesFrame frame = createStore(NUM_PARTICLES, bound, bound).getFrame();
+
+        // Baseline: every particles clipped on its own.
+        final RecordingCanvas perParticles = new RecordingCanvas(rect(0, 0, 1080, 1920));
+        for (int i = 0; i < frame.size(); i++) {
+            frame.draw(perParticles, i);
+        }
+        assertEquals(NUM_PARTICLES, perParticles.stateOps() / 3);
+
+        final RecordingCanvas grouped = new RecordingCanvas(rect(0, 0, 1080, 1920));
+        frame.draw(grouped);
+        assertEquals(1, grouped.saves);
+        assertEquals(1, grouped.clips);
+        assertEquals(1, grouped.restores);
+        assertEquals(NUM_PARTICLES, grouped.draws);
+    }
+
+    @Test
+    public void test_draw_clipsOncePerRunOfEqualBounds() {
+        // Distinct but equal instances share a group.
+        final ParticlesFrame frame = createStore(NUM_PARTICLES, rect(0, 0, 500, 500),
+                rect(0, 0, 500, 500)).getFrame();
+
+        final RecordingCanvas canvas = new RecordingCanvas(rect(0, 0, 1080, 1920));
+        frame.draw(canvas);
+        assertEquals(1, canvas.clips);
+        assertEquals(canvas.saves, canvas.restores);
+
+        final ParticlesFrame twoBounds = createStore(NUM_PARTICLES, rect(0, 0, 500, 500),
+                rect(0, 500, 500, 1000)).getFrame();
+        final RecordingCanvas twoBoundsCanvas = new RecordingCanvas(rect(0, 0, 1080, 1920));
+        twoBounds.draw(twoBoundsCanvas);
+        assertEquals(2, twoBoundsCanvas.clips);
+        assertEquals(twoBoundsCanvas.saves, twoBoundsCanvas.restores);
+    }
+
+    @Test
+    public void test_draw_skipsClipWhenBoundCoversCanvas() {
+        final Rect bound = rect(0, 0, 1080, 1920);
+        final ParticlesFrame frame = createStore(NUM_PARTICLES, bound, bound).getFrame();
+
+        final RecordingCanvas canvas = new RecordingCanvas(rect(0, 0, 1080, 1920));
+        frame.draw(canvas);
+        assertEquals(0, canvas.stateOps());
+        assertEquals(NUM_PARTICLES, canvas.draws);
+    }
+
+    @Test
+    public void test_draw_cullsParticlesOutsideCanvasClip() {
+        final ParticlesFrame frame = createStore(NUM_PARTICLES, rect(0, 0, 500, 500),
+                rect(0, 500, 500, 1000)).getFrame();
+
+        // Only the first half is within the clip, the second half is not even clipped to.
+        final RecordingCanvas canvas = new RecordingCanvas(rect(0, 0, 1080, 400));
+        frame.draw(canvas);
+        assertEquals(NUM_PARTICLES / 2, canvas.draws);
+        assertEquals(1, canvas.clips);
+        assertEquals(canvas.saves, canvas.restores);
+
+        final RecordingCanvas outside = new RecordingCanvas(rect(600, 0, 1080, 1920));
+        frame.draw(outside);
+        assertEquals(0, outside.draws);
+        assertEquals(0, outside.stateOps());
+    }
+
+    @Test
+    public void test_setCullingEnabled_drawsParticlesOutsideCanvasClip() {
+        final ParticlesFrame frame = createStore(NUM_PARTICLES, rect(0, 0, 500, 500),
+                rect(0, 500, 500, 1000)).getFrame();
+        frame.setCullingEnabled(false);
+
+        final RecordingCanvas canvas = new RecordingCanvas(rect(0, 0, 1080, 400));
+        frame.draw(canvas);
+        assertEquals(NUM_PARTICLES, canvas.draws);
+        assertEquals(2, canvas.clips);
+    }
+
+    @Test
+    public void test_append_drawsEveryStoreInOnePass() {
+        final ParticlesFrame first = createStore(NUM_PARTICLES, rect(0, 0, 500, 500),
+                rect(0, 0, 500, 500)).getFrame();
+        final ParticlesFrame second = createStore(NUM_PARTICLES, rect(0, 500, 500, 1000),
+                rect(0, 500, 500, 1000)).getFrame();
+
+        final ParticlesFrame frame = new ParticlesFrame();
+        frame.append(first);
+        frame.append(second);
+        assertEquals(NUM_PARTICLES * 2, frame.size());
+
+        final RecordingCanvas canvas = new RecordingCanvas(rect(0, 0, 1080, 1920));
+        frame.draw(canvas);
+        assertEquals(2, canvas.clips);
+        assertEquals(NUM_PARTICLES * 2, canvas.draws);
+
+        frame.clear();
+        frame.append(second);
+        assertEquals(NUM_PARTICLES, frame.size());
+    }
+
+    // The first half of the particles lies within the first bound, the second half within the
+    // other one.
+    private static ParticleStore createStore(int numParticles, Rect first, Rect second) {
+        final ParticleStore store = new ParticleStore();
+        for (int i = 0; i < numParticles; i++) {
+            final Rect bound = i < numParticles / 2 ? first : second;
+            final Particles particles = new TestParticles(canvas -> ((RecordingCanvas) canvas).draws++);
+            store.add(particles);
+            particles.setInitialX(bound.left + i % 100);
+            particles.setInitialY(bound.top + i / 100);
+            particles.setTTL(-1);
+            particles.prepare(bound);
+        }
+        store.update(16);
+        return store;
+    }
+
+    private static class RecordingCanvas extends Canvas {
+        private final Rect clipBounds;
+        int saves, restores, clips, draws;
+
+        RecordingCanvas(Rect clipBounds) {
+            this.clipBounds = clipBounds;
+        }
+
+        int stateOps() {
+            return saves + restores + clips;
+        }
+
+        @Override
+        public int save() {
+            return ++saves;
+        }
+
+        @Override
+        public void restore() {
+            restores++;
+        }
+
+        @Override
+        public boolean clipRect(Rect rect) {
+            clips++;
+            return true;
+        }
+
+        @Override
+        public boolean getClipBounds(Rect bounds) {
+            bounds.left = clipBounds.left;
+            bounds.top = clipBounds.top;
+            bounds.right = clipBounds.right;
+            bounds.bottom = clipBounds.bottom;
+            return true;
+        }
+    }
+}
@@ -1,9 +1,15 @@
 package com.tutorials.android.particles.particles;
 
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+
 import org.junit.Test;
 
+import static com.tutorials.android.particles.particles.TestParticles.rect;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class ParticlesTest {
 
@@ -77,4 +83,28 @@ public class ParticlesTest {
         time = Particles.computeBound(10f, -0.01f, -0.01f, 3L, -0.04f, -100, 10000);
         assertEquals(2251, time);
     }
+
+    @Test
+    public void test_applyUpdate_animatesWithoutStore() {
+        final float[] drawnVelocityX = new float[1];
+        final Particles particles = new TestParticles() {
+            @Override
+            @SuppressWarnings("deprecation")
+            protected void drawInternal(Canvas canvas, Matrix matrix, Paint paint, float x,
+                                        float y, float rotation, float percentAnimated) {
+                drawnVelocityX[0] = currentVelocityX;
+            }
+        };
+        particles.setInitialX(10f);
+        particles.setInitialVelocityX(0.5f);
+        particles.setTTL(-1);
+        particles.prepare(rect(0, 0, 1000, 1000));
+
+        assertTrue(particles.applyUpdate(100));
+        final ParticleStore store = particles.getStore();
+        assertEquals(60f, store.getX(particles.getIndex()), 0f);
+
+        particles.draw(new Canvas());
+        assertEquals(0.5f, drawnVelocityX[0], 0f);
+    }
 }
@@ -0,0 +1,107 @@
+package com.tutorials.android.particles.particles;
+
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PointBatcherTest {
+    private static final int RED = 0xFFFF0000;
+    private static final int BLUE = 0xFF0000FF;
+
+    @Test
+    public void test_flush_drawsOneCallPerColorAndRadius() {
+        final PointBatcher batcher = new PointBatcher();
+        for (int i = 0; i < 100; i++) {
+            batcher.add(i, i, 2f, i % 2 == 0 ? RED : BLUE, 255);
+            batcher.add(i, i, 4f, RED, 255);
+        }
+
+        final RecordingCanvas canvas = new RecordingCanvas();
+        batcher.flush(canvas);
+        assertEquals(3, canvas.pointCounts.size());
+        assertEquals(50, (int) canvas.pointCounts.get(0));
+        assertEquals(100, (int) canvas.pointCounts.get(1));
+        assertEquals(50, (int) canvas.pointCounts.get(2));
+
+        // Flushing clears the groups.
+        batcher.flush(canvas);
+        assertEquals(3, canvas.pointCounts.size());
+    }
+
+    @Test
+    public void test_flush_groupsManyColors() {
+        final PointBatcher batcher = new PointBatcher();
+        // More groups than the initial table holds, so that it is rehashed.
+        for (int i = 0; i < 200; i++) {
+            batcher.add(i, i, 2f, 0xFF000000 | (i % 50), 255);
+        }
+
+        final RecordingCanvas canvas = new RecordingCanvas();
+        batcher.flush(canvas);
+        assertEquals(50, canvas.pointCounts.size());
+        for (int count : canvas.pointCounts) {
+            assertEquals(4, count);
+        }
+    }
+
+    @Test
+    public void test_add_quantizesAlpha() {
+        final PointBatcher batcher = new PointBatcher();
+        for (int alpha = 0; alpha <= 255; alpha++) {
+            batcher.add(alpha, alpha, 2f, RED, alpha);
+        }
+        final RecordingCanvas canvas = new RecordingCanvas();
+        batcher.flush(canvas);
+        assertEquals(PointBatcher.ALPHA_LEVELS, canvas.pointCounts.size());
+
+        // Close alphas share a group.
+        batcher.add(0, 0, 2f, RED, 250);
+        batcher.add(1, 1, 2f, RED, 255);
+        final RecordingCanvas close = new RecordingCanvas();
+        batcher.flush(close);
+        assertEquals(1, close.pointCounts.size());
+    }
+
+    @Test
+    public void test_add_onlyQueuesPlainCircles() {
+        final PointBatcher batcher = new PointBatcher();
+        assertTrue(batcher.add(new CircleParticles(RED, 2f), 0, 0, 255));
+        assertFalse(batcher.add(new CustomCircleParticles(RED, 2f), 0, 0, 255));
+        assertFalse(batcher.add(new TestParticles(), 0, 0, 255));
+
+        final RecordingCanvas canvas = new RecordingCanvas();
+        batcher.flush(canvas);
+        assertEquals(1, canvas.pointCounts.size());
+        assertEquals(1, (int) canvas.pointCounts.get(0));
+    }
+
+    private static class RecordingCanvas extends Canvas {
+        // The number of points of each drawPoints call
+        final List<Integer> pointCounts = new ArrayList<>();
+
+        @Override
+        public void drawPoints(float[] pts, int offset, int count, Paint paint) {
+            pointCounts.add(count / 2);
+        }
+    }
+
+    private static class CustomCircleParticles extends CircleParticles {
+        CustomCircleParticles(int color, float radius) {
+            super(color, radius);
+        }
+
+        @Override
+        protected void drawInternal(Canvas canvas, Matrix matrix, Paint paint, float x, float y,
+                                    float rotation, float percentAnimated) {
+        }
+    }
+}
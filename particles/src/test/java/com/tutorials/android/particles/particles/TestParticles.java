@@ -0,0 +1,52 @@
+package com.tutorials.android.particles.particles;
+
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+/**
+ * A 10x10 particles for the tests, which draws nothing unless it is given a listener.
+ */
+public class TestParticles extends Particles {
+    public interface OnDrawListener {
+        void onDraw(Canvas canvas);
+    }
+
+    private final OnDrawListener onDrawListener;
+
+    public TestParticles() {
+        this(null);
+    }
+
+    public TestParticles(OnDrawListener onDrawListener) {
+        this.onDrawListener = onDrawListener;
+    }
+
+    public static Rect rect(int left, int top, int right, int bottom) {
+        final Rect rect = new Rect();
+        rect.left = left;
+        rect.top = top;
+        rect.right = right;
+        rect.bottom = bottom;
+        return rect;
+    }
+
+    @Override
+    public int getWidth() {
+        return 10;
+    }
+
+    @Override
+    public int getHeight() {
+        return 10;
+    }
+
+    @Override
+    protected void drawInternal(Canvas canvas, Matrix matrix, Paint paint, float x, float y,
+                                float rotation, float percentAnimated) {
+        if (onDrawListener != null) {
+            onDrawListener.onDraw(canvas);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.tutorials.android.particles.particles;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class TimeQueueTest {
+
+    @Test
+    public void test_poll_returnsParticlesByTime() {
+        final TimeQueue queue = new TimeQueue();
+        final List<Long> times = new ArrayList<>();
+        final Random random = new Random(7);
+        // More than the initial capacity so that the heap grows.
+        for (int i = 0; i < 100; i++) {
+            final long time = random.nextInt(1000);
+            times.add(time);
+            queue.schedule(new TestParticles(), time);
+        }
+        Collections.sort(times);
+
+        for (long time : times) {
+            assertEquals(time, queue.peekTime());
+            final Particles particles = queue.poll();
+            assertNull(particles.queue);
+        }
+        assertEquals(0, queue.size());
+        assertEquals(Long.MAX_VALUE, queue.peekTime());
+    }
+
+    @Test
+    public void test_schedule_reschedulesAndUnschedules() {
+        final TimeQueue queue = new TimeQueue();
+        final Particles early = new TestParticles();
+        final Particles middle = new TestParticles();
+        final Particles late = new TestParticles();
+        queue.schedule(late, 30);
+        queue.schedule(middle, 20);
+        queue.schedule(early, 10);
+
+        queue.schedule(early, 40);
+        assertEquals(3, queue.size());
+        assertSame(middle, queue.poll());
+
+        queue.unschedule(late);
+        assertEquals(1, queue.size());
+        assertSame(early, queue.poll());
+    }
+
+    @Test
+    public void test_schedule_movesParticlesBetweenQueues() {
+        final TimeQueue first = new TimeQueue();
+        final TimeQueue second = new TimeQueue();
+        final Particles particles = new TestParticles();
+        first.schedule(particles, 10);
+        second.schedule(particles, 20);
+
+        assertEquals(0, first.size());
+        assertEquals(1, second.size());
+        assertSame(second, particles.queue);
+    }
+}